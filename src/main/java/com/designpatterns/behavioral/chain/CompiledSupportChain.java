@@ -0,0 +1,180 @@
+package com.designpatterns.behavioral.chain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A handler chain compiled into a lookup table.
+ *
+ * Type, priority and complexity span only 6 x 5 x 10 combinations, counting
+ * a missing type or priority as one more value. Compiling probes every
+ * handler with one ticket per combination to learn whether it resolves the
+ * ticket or passes it on: while probing, {@link SupportHandler#handleNext}
+ * returns a marker on the compiling thread instead of calling the successor,
+ * so the chain itself is never modified and keeps serving other threads.
+ * Each combination then maps straight to the first handler that resolves it,
+ * and {@link #handle(SupportTicket)} calls only that handler instead of
+ * walking the chain.
+ *
+ * Handlers must decide from type, priority and complexity alone, and pass
+ * tickets on through {@code handleNext}; the description may only shape the
+ * response message. The table is a snapshot: compile again after
+ * reconfiguring the chain.
+ */
+public final class CompiledSupportChain {
+    static final int ESCALATED = -1;
+    private static final int MAX_COMPLEXITY = 10;
+    // Every enum constant plus a trailing null
+    private static final Type[] TYPES = Arrays.copyOf(Type.values(), Type.values().length + 1);
+    private static final Priority[] PRIORITIES = Arrays.copyOf(Priority.values(), Priority.values().length + 1);
+
+    private final List<SupportHandler> handlers;
+    // Index into handlers of the resolving handler per combination, or ESCALATED
+    private final byte[] resolvers;
+    private final boolean[] handled;
+
+    private CompiledSupportChain(List<SupportHandler> handlers, byte[] resolvers, boolean[] handled) {
+        this.handlers = handlers;
+        this.resolvers = resolvers;
+        this.handled = handled;
+    }
+
+    public static CompiledSupportChain compile(SupportHandler head) {
+        List<SupportHandler> handlers = new ArrayList<>();
+        Map<SupportHandler, Boolean> seen = new IdentityHashMap<>();
+        for (SupportHandler handler = head; handler != null; handler = handler.nextHandler) {
+            if (seen.put(handler, Boolean.TRUE) != null) {
+                throw new IllegalArgumentException("Handler chain contains a cycle");
+            }
+            handlers.add(handler);
+        }
+        if (handlers.size() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Chains longer than " + Byte.MAX_VALUE + " handlers are not supported");
+        }
+
+        int cells = TYPES.length * PRIORITIES.length * MAX_COMPLEXITY;
+        byte[] resolvers = new byte[cells];
+        boolean[] handled = new boolean[cells];
+        Arrays.fill(resolvers, (byte) ESCALATED);
+        boolean[] resolvedCells = new boolean[cells];
+        SupportHandler.PROBING.set(Boolean.TRUE);
+        try {
+            for (int index = 0; index < handlers.size(); index++) {
+                SupportHandler handler = handlers.get(index);
+                for (Type type : TYPES) {
+                    for (Priority priority : PRIORITIES) {
+                        for (int complexity = 1; complexity <= MAX_COMPLEXITY; complexity++) {
+                            int cell = cell(type, priority, complexity);
+                            if (resolvedCells[cell]) {
+                                continue;
+                            }
+                            TicketResponse response;
+                            try {
+                                response = handler.handle(new SupportTicket("", priority, type, complexity));
+                            } catch (RuntimeException e) {
+                                // Route such tickets here so handle() fails just as the chain would
+                                response = SupportHandler.escalate(new SupportTicket("", priority, type, complexity));
+                            }
+                            if (response != SupportHandler.PASSED_ON) {
+                                resolvedCells[cell] = true;
+                                resolvers[cell] = (byte) index;
+                                handled[cell] = response.isHandled();
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            SupportHandler.PROBING.remove();
+        }
+        return new CompiledSupportChain(Collections.unmodifiableList(handlers), resolvers, handled);
+    }
+
+    /**
+     * Routes the ticket straight to its resolving handler; gives the same
+     * response as handling it at the head of the original chain.
+     */
+    public TicketResponse handle(SupportTicket ticket) {
+        int resolver = resolverIndex(ticket);
+        return resolver == ESCALATED ? SupportHandler.escalate(ticket) : handlers.get(resolver).handle(ticket);
+    }
+
+    /**
+     * Routes a whole backlog at once. Tickets are classified through the
+     * table, then grouped by resolver with a counting sort; no responses are
+     * built until the result is asked for one. Classification is one array
+     * lookup per ticket, too little work to repay splitting it across
+     * threads.
+     */
+    public TriageResult triage(Collection<? extends SupportTicket> tickets) {
+        return triage(tickets.toArray(new SupportTicket[0]));
+    }
+
+    public TriageResult triage(Stream<? extends SupportTicket> tickets) {
+        return triage(tickets.toArray(SupportTicket[]::new));
+    }
+
+    private TriageResult triage(SupportTicket[] batch) {
+        int count = batch.length;
+        byte[] routes = new byte[count];
+        boolean[] ticketHandled = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            int cell = cell(batch[i].getType(), batch[i].getPriority(), batch[i].getComplexity());
+            routes[i] = resolvers[cell];
+            ticketHandled[i] = handled[cell];
+        }
+
+        // One partition per handler, plus the last for escalations
+        int partitions = handlers.size() + 1;
+        int[] starts = new int[partitions + 1];
+        for (byte route : routes) {
+            starts[partitionOf(route) + 1]++;
+        }
+        for (int p = 0; p < partitions; p++) {
+            starts[p + 1] += starts[p];
+        }
+        int[] next = Arrays.copyOf(starts, partitions);
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[next[partitionOf(routes[i])]++] = i;
+        }
+        return new TriageResult(this, batch, routes, ticketHandled, order, starts);
+    }
+
+    private int partitionOf(byte route) {
+        return route == ESCALATED ? handlers.size() : route;
+    }
+
+    /**
+     * The handler that resolves the ticket, or null if it is escalated to
+     * management.
+     */
+    public SupportHandler getResolver(SupportTicket ticket) {
+        int resolver = resolverIndex(ticket);
+        return resolver == ESCALATED ? null : handlers.get(resolver);
+    }
+
+    int resolverIndex(SupportTicket ticket) {
+        return resolvers[cell(ticket.getType(), ticket.getPriority(), ticket.getComplexity())];
+    }
+
+    boolean isHandled(SupportTicket ticket) {
+        return handled[cell(ticket.getType(), ticket.getPriority(), ticket.getComplexity())];
+    }
+
+    List<SupportHandler> getHandlers() {
+        return handlers;
+    }
+
+    private static int cell(Type type, Priority priority, int complexity) {
+        int typeSlot = type == null ? TYPES.length - 1 : type.ordinal();
+        int prioritySlot = priority == null ? PRIORITIES.length - 1 : priority.ordinal();
+        return (typeSlot * PRIORITIES.length + prioritySlot) * MAX_COMPLEXITY + complexity - 1;
+    }
+}
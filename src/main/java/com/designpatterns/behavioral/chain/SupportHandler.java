@@ -5,6 +5,10 @@ package com.designpatterns.behavioral.chain;
  * Defines the interface for handling requests and maintains the successor link.
  */
 public abstract class SupportHandler {
+    // Set while CompiledSupportChain probes handlers on this thread; tickets then go no further
+    static final ThreadLocal<Boolean> PROBING = new ThreadLocal<>();
+    static final TicketResponse PASSED_ON = new TicketResponse(false, "", "");
+
     protected SupportHandler nextHandler;
     protected String handlerName;
 
@@ -20,10 +24,17 @@ public abstract class SupportHandler {
     public abstract TicketResponse handle(SupportTicket ticket);
 
     protected TicketResponse handleNext(SupportTicket ticket) {
+        if (PROBING.get() != null) {
+            return PASSED_ON;
+        }
         if (nextHandler != null) {
             return nextHandler.handle(ticket);
         }
         // If no handler can process the ticket, escalate to manager
+        return escalate(ticket);
+    }
+
+    static TicketResponse escalate(SupportTicket ticket) {
         return new TicketResponse(false,
                 "Ticket requires manager attention: " + ticket.getDescription(),
                 "Management Escalation");
@@ -0,0 +1,138 @@
+package com.designpatterns.behavioral.chain;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar outcome of {@link CompiledSupportChain#triage(java.util.Collection)}.
+ *
+ * Per ticket only the resolving handler's index and the handled flag are
+ * stored, in flat arrays. Ticket indices are also grouped by resolver so each
+ * partition can be read or processed on its own. {@link TicketResponse}s and
+ * their messages are built only when {@link #getResponse(int)} asks for one.
+ */
+public final class TriageResult {
+    private final CompiledSupportChain chain;
+    private final SupportTicket[] tickets;
+    private final byte[] routes;
+    private final boolean[] handled;
+    // Ticket indices grouped by partition; partition p spans [starts[p], starts[p + 1])
+    private final int[] order;
+    private final int[] starts;
+
+    TriageResult(CompiledSupportChain chain, SupportTicket[] tickets, byte[] routes, boolean[] handled,
+            int[] order, int[] starts) {
+        this.chain = chain;
+        this.tickets = tickets;
+        this.routes = routes;
+        this.handled = handled;
+        this.order = order;
+        this.starts = starts;
+    }
+
+    public int size() {
+        return tickets.length;
+    }
+
+    public SupportTicket getTicket(int index) {
+        return tickets[index];
+    }
+
+    public boolean isHandled(int index) {
+        return handled[index];
+    }
+
+    public String getHandlerName(int index) {
+        SupportHandler resolver = getResolver(index);
+        return resolver != null ? resolver.getHandlerName() : "Management Escalation";
+    }
+
+    /**
+     * The handler that resolved the ticket, or null if it was escalated.
+     */
+    public SupportHandler getResolver(int index) {
+        int route = routes[index];
+        return route == CompiledSupportChain.ESCALATED ? null : chain.getHandlers().get(route);
+    }
+
+    /**
+     * Builds the full response for one ticket, message included, by asking
+     * the stored resolver directly.
+     */
+    public TicketResponse getResponse(int index) {
+        SupportHandler resolver = getResolver(index);
+        return resolver == null ? SupportHandler.escalate(tickets[index]) : resolver.handle(tickets[index]);
+    }
+
+    public int getHandledCount() {
+        int count = 0;
+        for (boolean ticketHandled : handled) {
+            if (ticketHandled) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Indices of the tickets resolved by {@code resolver}, or escalated when
+     * it is null, in input order.
+     */
+    public int[] getPartition(SupportHandler resolver) {
+        int partition = partitionOf(resolver);
+        return Arrays.copyOfRange(order, starts[partition], starts[partition + 1]);
+    }
+
+    /**
+     * Calls {@code processor} once per non-empty partition, in parallel, with
+     * the resolver (null for escalations) and that partition's tickets.
+     */
+    public void processPartitions(BiConsumer<SupportHandler, List<SupportTicket>> processor) {
+        List<SupportHandler> handlers = chain.getHandlers();
+        IntStream.range(0, starts.length - 1).parallel()
+                .filter(partition -> starts[partition + 1] > starts[partition])
+                .forEach(partition -> processor.accept(
+                        partition < handlers.size() ? handlers.get(partition) : null,
+                        new PartitionView(starts[partition], starts[partition + 1])));
+    }
+
+    private int partitionOf(SupportHandler resolver) {
+        if (resolver == null) {
+            return starts.length - 2;
+        }
+        List<SupportHandler> handlers = chain.getHandlers();
+        for (int i = 0; i < handlers.size(); i++) {
+            if (handlers.get(i) == resolver) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Handler is not part of this chain");
+    }
+
+    // Read-only view of one partition without copying the tickets
+    private final class PartitionView extends AbstractList<SupportTicket> {
+        private final int from;
+        private final int to;
+
+        private PartitionView(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public SupportTicket get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+            }
+            return tickets[order[from + index]];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
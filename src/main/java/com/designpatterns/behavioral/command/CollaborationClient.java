@@ -0,0 +1,104 @@
+package com.designpatterns.behavioral.command;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * One replica of a document shared through a {@link CollaborationServer}.
+ *
+ * Local {@link InsertTextCommand}s and {@link DeleteTextCommand}s are applied
+ * at once and turned into {@link TextOperation}s. Operations are sent one at
+ * a time: the next leaves only after the server has acknowledged the
+ * previous one. Operations from other sites are rebased over the local ones
+ * the server has not yet seen before they are applied, and the pending local
+ * ones are rebased over them in turn, so every replica converges on the
+ * server's document.
+ */
+public class CollaborationClient {
+    private final int siteId;
+    private final TextEditor editor;
+    private final Consumer<byte[]> sender;
+    // The first pending operation is in flight; the rest wait for its ack
+    private final List<TextOperation> pending = new ArrayList<>();
+    private int revision;
+
+    /**
+     * @param siteId unique id of this replica, used to order equal-position inserts
+     * @param sender delivers messages to the server
+     */
+    public CollaborationClient(int siteId, TextEditor editor, Consumer<byte[]> sender) {
+        if (siteId < 0) {
+            throw new IllegalArgumentException("Site id must not be negative");
+        }
+        this.siteId = siteId;
+        this.editor = editor;
+        this.sender = sender;
+    }
+
+    /**
+     * Executes a local insert or delete and shares it with the other sites.
+     */
+    public synchronized void execute(EditorCommand command) {
+        int cursor = editor.getCursorPosition();
+        int lengthBefore = editor.getLength();
+        TextOperation operation;
+        if (command instanceof InsertTextCommand) {
+            command.execute();
+            operation = TextOperation.insert(siteId, cursor, ((InsertTextCommand) command).getText());
+        } else if (command instanceof DeleteTextCommand) {
+            command.execute();
+            int removed = lengthBefore - editor.getLength();
+            operation = TextOperation.delete(siteId, cursor - removed, removed);
+        } else {
+            throw new IllegalArgumentException("Cannot share command: " + command.getDescription());
+        }
+        if (operation.isNoOp()) {
+            return;
+        }
+        pending.add(operation);
+        if (pending.size() == 1) {
+            sender.accept(TextOperationCodec.encode(revision, operation));
+        }
+    }
+
+    /**
+     * Handles a broadcast from the server: either the acknowledgement of this
+     * site's in-flight operation or another site's operation.
+     */
+    public synchronized void receive(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        TextOperationCodec.readRevision(buffer);
+        TextOperation remote = TextOperationCodec.readOperation(buffer);
+        revision++;
+        if (remote.getSiteId() == siteId) {
+            pending.remove(0);
+            if (!pending.isEmpty()) {
+                sender.accept(TextOperationCodec.encode(revision, pending.get(0)));
+            }
+            return;
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            TextOperation local = pending.get(i);
+            pending.set(i, TextOperation.transform(local, remote));
+            remote = TextOperation.transform(remote, local);
+        }
+        remote.applyTo(editor);
+    }
+
+    public synchronized int getRevision() {
+        return revision;
+    }
+
+    /**
+     * Local operations the server has not acknowledged yet.
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+}
@@ -0,0 +1,50 @@
+package com.designpatterns.behavioral.command;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Central authority for a shared document edited by {@link CollaborationClient}s.
+ *
+ * The server keeps the canonical document and the ordered list of every
+ * operation it has applied; the list index is the revision. An incoming
+ * operation names the revision it was made against, is rebased over every
+ * operation applied since, applied, and returned for broadcast to all
+ * clients, including its sender, which treats it as an acknowledgement.
+ */
+public class CollaborationServer {
+    private final TextEditor document;
+    private final List<TextOperation> history = new ArrayList<>();
+
+    public CollaborationServer(TextEditor document) {
+        this.document = document;
+    }
+
+    /**
+     * Integrates a client message and returns the message to broadcast.
+     */
+    public synchronized byte[] receive(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        int revision = TextOperationCodec.readRevision(buffer);
+        TextOperation operation = TextOperationCodec.readOperation(buffer);
+        if (revision < 0 || revision > history.size()) {
+            throw new IllegalArgumentException("Unknown revision " + revision + ", server is at " + history.size());
+        }
+        for (int i = revision; i < history.size(); i++) {
+            operation = TextOperation.transform(operation, history.get(i));
+        }
+        operation.applyTo(document);
+        byte[] broadcast = TextOperationCodec.encode(history.size(), operation);
+        history.add(operation);
+        return broadcast;
+    }
+
+    public synchronized int getRevision() {
+        return history.size();
+    }
+
+    public synchronized String getContent() {
+        return document.getContent();
+    }
+}
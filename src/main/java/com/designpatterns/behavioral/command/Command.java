@@ -10,4 +10,12 @@ public interface Command {
     void undo();
 
     String getDescription();
-}
\ No newline at end of file
+
+    /**
+     * The device this command acts on. Commands for the same receiver are
+     * run one at a time and in submission order by {@link CommandScheduler}.
+     */
+    default Object getReceiver() {
+        return this;
+    }
+}
@@ -0,0 +1,148 @@
+package com.designpatterns.behavioral.command;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe front end for a {@link CommandManager}.
+ *
+ * Any number of threads submit commands, undos and redos into a lock-free
+ * {@link MpscArrayQueue}; one applier thread drains it and is the only thread
+ * that ever touches the manager and its editor, so their state stays
+ * consistent without locking. Submitting never blocks: a full queue is
+ * reported by returning false. The {@link WaitStrategy} decides what the
+ * applier does while the queue is empty.
+ */
+public class CommandApplier implements AutoCloseable {
+
+    public enum WaitStrategy {
+        /** Busy-spin: lowest latency, keeps one core busy. */
+        SPIN,
+        /** Yield the core between polls. */
+        YIELD,
+        /** Park until a producer signals new work. */
+        BLOCK
+    }
+
+    private final CommandManager manager;
+    private final MpscArrayQueue<Consumer<CommandManager>> queue;
+    private final WaitStrategy waitStrategy;
+    private final Thread applierThread;
+    private final AtomicLong appliedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean parked;
+
+    public CommandApplier(CommandManager manager, int capacity, WaitStrategy waitStrategy) {
+        this.manager = manager;
+        this.queue = new MpscArrayQueue<>(capacity);
+        this.waitStrategy = waitStrategy;
+        this.applierThread = new Thread(this::applyLoop, "command-applier");
+        applierThread.setDaemon(true);
+        applierThread.start();
+    }
+
+    /**
+     * Queues the command for execution. Returns false if the queue is full or
+     * the applier has been closed.
+     */
+    public boolean submit(EditorCommand command) {
+        return enqueue(target -> target.executeCommand(command));
+    }
+
+    public boolean submitUndo() {
+        return enqueue(CommandManager::undo);
+    }
+
+    public boolean submitRedo() {
+        return enqueue(CommandManager::redo);
+    }
+
+    private boolean enqueue(Consumer<CommandManager> action) {
+        if (!running || !queue.offer(action)) {
+            return false;
+        }
+        if (parked) {
+            LockSupport.unpark(applierThread);
+        }
+        return true;
+    }
+
+    private void applyLoop() {
+        while (running || !queue.isEmpty()) {
+            Consumer<CommandManager> action = queue.poll();
+            if (action != null) {
+                apply(action);
+            } else {
+                idle();
+            }
+        }
+    }
+
+    private void apply(Consumer<CommandManager> action) {
+        try {
+            action.accept(manager);
+            appliedCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            failedCount.incrementAndGet();
+        }
+    }
+
+    private void idle() {
+        switch (waitStrategy) {
+            case SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            case BLOCK:
+                parked = true;
+                // Re-check after announcing, so a producer that enqueued just
+                // before seeing parked == true cannot be missed
+                if (running && queue.isEmpty()) {
+                    LockSupport.park(this);
+                }
+                parked = false;
+                break;
+            default:
+                throw new IllegalStateException("Unknown wait strategy: " + waitStrategy);
+        }
+    }
+
+    /**
+     * Actions that completed without throwing.
+     */
+    public long getAppliedCount() {
+        return appliedCount.get();
+    }
+
+    /**
+     * Actions whose command threw; the manager is left as the command left it.
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Stops accepting work, applies everything already queued, and waits for
+     * the applier thread to exit. A submission racing with close may be
+     * dropped even though it returned true. If the calling thread is
+     * interrupted it stops waiting and keeps its interrupt status.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(applierThread);
+        try {
+            applierThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
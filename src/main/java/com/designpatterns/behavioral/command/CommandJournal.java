@@ -0,0 +1,294 @@
+package com.designpatterns.behavioral.command;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary write-ahead journal used to persist invoker history.
+ *
+ * Records are length- and checksum-prefixed and written through a
+ * {@link FileChannel}. Appends are buffered and written as a group; the
+ * {@link FsyncPolicy} decides whether each group is forced to disk. A
+ * snapshot rolls the journal to a new segment and deletes every older segment
+ * and snapshot, so recovery only loads the latest snapshot and replays the
+ * short tail written after it. A torn record at the end of a segment, left by
+ * a crash mid-write, ends replay cleanly.
+ *
+ * Callers append a record before applying it. If applying it then fails,
+ * {@link #abort()} marks the record so recovery skips it. Under GROUP and
+ * NEVER a partly filled group is also written once it has waited for the
+ * flush interval, so a quiet journal does not hold records indefinitely.
+ */
+public class CommandJournal implements Closeable {
+
+    public enum FsyncPolicy {
+        /** Write and force every record before append returns. */
+        ALWAYS,
+        /** Write and force once per group of records. */
+        GROUP,
+        /** Write once per group and leave flushing to the operating system. */
+        NEVER
+    }
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final byte[] ABORT = new byte[0];
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "command-journal-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final int groupSize;
+    private final List<byte[]> pending = new ArrayList<>();
+    private long segmentSequence;
+    private FileChannel segment;
+    private final ScheduledFuture<?> flushTask;
+
+    public CommandJournal(Path directory, FsyncPolicy fsyncPolicy, int groupSize) throws IOException {
+        this(directory, fsyncPolicy, groupSize, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param flushIntervalMillis longest time a buffered record waits before
+     *                            its group is written
+     */
+    public CommandJournal(Path directory, FsyncPolicy fsyncPolicy, int groupSize, long flushIntervalMillis)
+            throws IOException {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("Group size must be at least 1");
+        }
+        if (flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.directory = directory;
+        this.fsyncPolicy = fsyncPolicy;
+        this.groupSize = fsyncPolicy == FsyncPolicy.ALWAYS ? 1 : groupSize;
+        Files.createDirectories(directory);
+        List<Long> sequences = sequences(SEGMENT_PREFIX);
+        sequences.addAll(sequences(SNAPSHOT_PREFIX));
+        // New writes always start a fresh segment, never after a possibly torn tail
+        this.segmentSequence = sequences.isEmpty() ? 0 : Collections.max(sequences) + 1;
+        this.flushTask = this.groupSize == 1 ? null : FLUSHER.scheduleWithFixedDelay(
+                this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads the latest snapshot, if any, then replays every record written
+     * after it in order, skipping aborted records. Call once after opening,
+     * before appending.
+     */
+    public synchronized void recover(Consumer<byte[]> snapshotLoader, Consumer<byte[]> recordReplayer)
+            throws IOException {
+        long snapshotSequence = -1;
+        List<Long> snapshots = sequences(SNAPSHOT_PREFIX);
+        if (!snapshots.isEmpty()) {
+            snapshotSequence = Collections.max(snapshots);
+            snapshotLoader.accept(Files.readAllBytes(path(SNAPSHOT_PREFIX, snapshotSequence)));
+        }
+        // Each record is held back until the next one shows it was not aborted
+        byte[][] held = new byte[1][];
+        Consumer<byte[]> abortAware = record -> {
+            if (record.length > 0 && held[0] != null) {
+                recordReplayer.accept(held[0]);
+            }
+            held[0] = record.length > 0 ? record : null;
+        };
+        for (long sequence : sequences(SEGMENT_PREFIX)) {
+            if (sequence >= snapshotSequence) {
+                replaySegment(path(SEGMENT_PREFIX, sequence), abortAware);
+            }
+        }
+        if (held[0] != null) {
+            recordReplayer.accept(held[0]);
+        }
+    }
+
+    private void replaySegment(Path file, Consumer<byte[]> recordReplayer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                return;
+            }
+            byte[] record = new byte[length];
+            buffer.get(record);
+            crc.reset();
+            crc.update(record);
+            if ((int) crc.getValue() != checksum) {
+                return;
+            }
+            recordReplayer.accept(record);
+        }
+    }
+
+    public synchronized void append(byte[] record) {
+        if (record.length == 0) {
+            throw new IllegalArgumentException("Journal records must not be empty");
+        }
+        pending.add(record);
+        if (pending.size() >= groupSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Marks the most recently appended record as failed, so recovery skips
+     * it. A record still buffered is simply dropped; one already written is
+     * followed by an abort marker.
+     */
+    public synchronized void abort() {
+        if (!pending.isEmpty()) {
+            pending.remove(pending.size() - 1);
+        } else {
+            pending.add(ABORT);
+            if (pending.size() >= groupSize) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Writes buffered records as one group and, unless the policy is NEVER,
+     * forces them to disk.
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int size = 0;
+        for (byte[] record : pending) {
+            size += HEADER_SIZE + record.length;
+        }
+        ByteBuffer group = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] record : pending) {
+            crc.reset();
+            crc.update(record);
+            group.putInt(record.length).putInt((int) crc.getValue()).put(record);
+        }
+        group.flip();
+        try {
+            FileChannel channel = activeSegment();
+            while (group.hasRemaining()) {
+                channel.write(group);
+            }
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write command journal", e);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Persists a full state snapshot and compacts the journal: records written
+     * before the snapshot, and older snapshots, are deleted.
+     */
+    public synchronized void snapshot(byte[] state) {
+        flush();
+        try {
+            closeSegment();
+            segmentSequence++;
+            Path temp = directory.resolve(SNAPSHOT_PREFIX + "tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(state);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path(SNAPSHOT_PREFIX, segmentSequence), StandardCopyOption.ATOMIC_MOVE);
+            deleteOlderThan(SEGMENT_PREFIX, segmentSequence);
+            deleteOlderThan(SNAPSHOT_PREFIX, segmentSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write journal snapshot", e);
+        }
+    }
+
+    public synchronized int getSegmentCount() throws IOException {
+        return sequences(SEGMENT_PREFIX).size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flush();
+        closeSegment();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (UncheckedIOException e) {
+            // The records stay buffered; the next append or flush reports the failure
+        }
+    }
+
+    private FileChannel activeSegment() throws IOException {
+        if (segment == null) {
+            segment = FileChannel.open(path(SEGMENT_PREFIX, segmentSequence), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return segment;
+    }
+
+    private void closeSegment() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+    }
+
+    private void deleteOlderThan(String prefix, long sequence) throws IOException {
+        for (long older : sequences(prefix)) {
+            if (older < sequence) {
+                Files.deleteIfExists(path(prefix, older));
+            }
+        }
+    }
+
+    private Path path(String prefix, long sequence) {
+        return directory.resolve(String.format("%s%020d%s", prefix, sequence, SUFFIX));
+    }
+
+    private List<Long> sequences(String prefix) throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - SUFFIX.length())));
+            }
+        }
+        Collections.sort(sequences);
+        return sequences;
+    }
+}
@@ -1,23 +1,183 @@
 package com.designpatterns.behavioral.command;
 
-import java.util.Stack;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 
 /**
- * The Invoker class that manages command execution and history
+ * The Invoker class that manages command execution and history.
+ *
+ * History can be bounded by entry count and by the estimated bytes the
+ * commands retain; once either limit is exceeded the oldest undo entries are
+ * evicted first. Both stacks are unsynchronized ring-buffer deques.
+ *
+ * With coalescing enabled, a command that continues the previous one (such as
+ * the next keystroke of a word) is merged into it instead of becoming a new
+ * history entry. {@link #executeBatch(List)} applies several commands as a
+ * single undoable unit.
+ *
+ * A manager created by {@link #recover(TextEditor, CommandJournal)} writes
+ * every command, undo and redo to a {@link CommandJournal}, so its editor and
+ * history survive a restart. {@link #checkpoint()} snapshots the editor and
+ * compacts the journal; history from before the checkpoint is discarded.
+ *
+ * The manager is not thread-safe. Threads that edit concurrently should
+ * submit through a {@link CommandApplier}, which applies everything on one
+ * thread.
  */
 public class CommandManager {
-    private final Stack<EditorCommand> undoStack;
-    private final Stack<EditorCommand> redoStack;
+    private final Deque<EditorCommand> undoStack;
+    private final Deque<EditorCommand> redoStack;
+    private final int maxEntries;
+    private final long maxBytes;
+    private long historyBytes;
+    private boolean coalescing;
+    private boolean lastCommandMergeable;
+    private CommandJournal journal;
+    private TextEditor journaledEditor;
 
     public CommandManager() {
-        this.undoStack = new Stack<>();
-        this.redoStack = new Stack<>();
+        this(Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maxEntries maximum number of commands kept across undo and redo
+     * @param maxBytes   maximum estimated bytes retained by those commands
+     */
+    public CommandManager(int maxEntries, long maxBytes) {
+        if (maxEntries < 1 || maxBytes < 1) {
+            throw new IllegalArgumentException("History limits must be positive");
+        }
+        this.undoStack = new ArrayDeque<>();
+        this.redoStack = new ArrayDeque<>();
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Rebuilds an editor and its history from a journal, then keeps
+     * journaling through the returned manager. The editor must be empty.
+     */
+    public static CommandManager recover(TextEditor editor, CommandJournal journal) throws IOException {
+        return recover(editor, journal, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    public static CommandManager recover(TextEditor editor, CommandJournal journal, int maxEntries, long maxBytes)
+            throws IOException {
+        CommandManager manager = new CommandManager(maxEntries, maxBytes);
+        journal.recover(
+                snapshot -> manager.setCoalescing(EditorJournalCodec.loadSnapshot(snapshot, editor)),
+                record -> EditorJournalCodec.replay(record, manager, editor));
+        manager.journal = journal;
+        manager.journaledEditor = editor;
+        return manager;
+    }
+
+    /**
+     * Snapshots the journaled editor and compacts the journal. The undo and
+     * redo history is cleared, since it could not be replayed from the
+     * snapshot.
+     */
+    public void checkpoint() {
+        if (journal == null) {
+            throw new IllegalStateException("Checkpoints require a journaled CommandManager");
+        }
+        journal.snapshot(EditorJournalCodec.encodeSnapshot(journaledEditor, coalescing));
+        undoStack.clear();
+        redoStack.clear();
+        historyBytes = 0;
+        lastCommandMergeable = false;
     }
 
     public void executeCommand(EditorCommand command) {
-        command.execute();
+        if (journal != null) {
+            journal.append(EditorJournalCodec.encodeExecute(journaledEditor, command));
+        }
+        try {
+            command.execute();
+        } catch (RuntimeException e) {
+            if (journal != null) {
+                journal.abort();
+            }
+            throw e;
+        }
+        if (coalescing && lastCommandMergeable && mergeIntoLast(command)) {
+            return;
+        }
+        record(command);
+        lastCommandMergeable = true;
+    }
+
+    private boolean mergeIntoLast(EditorCommand command) {
+        EditorCommand last = undoStack.peek();
+        if (last == null) {
+            return false;
+        }
+        long sizeBefore = last.getEstimatedSize();
+        if (!last.mergeWith(command)) {
+            return false;
+        }
+        historyBytes += last.getEstimatedSize() - sizeBefore;
+        evictOldest();
+        return true;
+    }
+
+    /**
+     * Executes the commands in order and records them as one history entry.
+     * If any command throws, the ones already applied are undone and the
+     * exception is rethrown, leaving the editor and history unchanged.
+     */
+    public void executeBatch(List<? extends EditorCommand> commands) {
+        if (commands.isEmpty()) {
+            return;
+        }
+        if (journal != null) {
+            journal.append(EditorJournalCodec.encodeBatch(journaledEditor, commands));
+        }
+        int executed = 0;
+        try {
+            for (EditorCommand command : commands) {
+                command.execute();
+                executed++;
+            }
+        } catch (RuntimeException e) {
+            for (int i = executed - 1; i >= 0; i--) {
+                commands.get(i).undo();
+            }
+            if (journal != null) {
+                journal.abort();
+            }
+            throw e;
+        }
+        record(new CompositeEditorCommand(commands));
+        lastCommandMergeable = false;
+    }
+
+    private void record(EditorCommand command) {
         undoStack.push(command);
-        redoStack.clear(); // Clear redo stack when new command is executed
+        historyBytes += command.getEstimatedSize();
+        clearRedo(); // Clear redo stack when new command is executed
+        evictOldest();
+    }
+
+    private void clearRedo() {
+        for (EditorCommand command : redoStack) {
+            historyBytes -= command.getEstimatedSize();
+        }
+        redoStack.clear();
+    }
+
+    private void evictOldest() {
+        while (!undoStack.isEmpty()
+                && (undoStack.size() + redoStack.size() > maxEntries || historyBytes > maxBytes)) {
+            historyBytes -= undoStack.removeLast().getEstimatedSize();
+        }
+        if (undoStack.isEmpty()) {
+            // An entry too large to keep leaves nothing to merge into
+            lastCommandMergeable = false;
+        }
     }
 
     public boolean canUndo() {
@@ -29,7 +189,11 @@ public class CommandManager {
     }
 
     public void undo() {
+        lastCommandMergeable = false;
         if (canUndo()) {
+            if (journal != null) {
+                journal.append(EditorJournalCodec.encodeUndo());
+            }
             EditorCommand command = undoStack.pop();
             command.undo();
             redoStack.push(command);
@@ -37,18 +201,45 @@ public class CommandManager {
     }
 
     public void redo() {
+        lastCommandMergeable = false;
         if (canRedo()) {
+            if (journal != null) {
+                journal.append(EditorJournalCodec.encodeRedo());
+            }
             EditorCommand command = redoStack.pop();
             command.execute();
             undoStack.push(command);
         }
     }
 
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
+    public void setCoalescing(boolean coalescing) {
+        if (journal != null) {
+            journal.append(EditorJournalCodec.encodeCoalescing(coalescing));
+        }
+        this.coalescing = coalescing;
+        this.lastCommandMergeable = false;
+    }
+
+    public int getHistorySize() {
+        return undoStack.size() + redoStack.size();
+    }
+
+    /**
+     * Estimated bytes retained by the commands in the undo and redo history.
+     */
+    public long getHistoryMemoryUsage() {
+        return historyBytes;
+    }
+
     public String getUndoHistory() {
         StringBuilder history = new StringBuilder("Undo Stack:\n");
-        for (EditorCommand command : undoStack) {
-            history.append("- ").append(command.getDescription()).append("\n");
+        for (Iterator<EditorCommand> oldestFirst = undoStack.descendingIterator(); oldestFirst.hasNext();) {
+            history.append("- ").append(oldestFirst.next().getDescription()).append("\n");
         }
         return history.toString();
     }
-}
\ No newline at end of file
+}
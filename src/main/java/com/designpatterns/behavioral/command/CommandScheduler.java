@@ -0,0 +1,112 @@
+package com.designpatterns.behavioral.command;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs device commands asynchronously, serialized per receiver.
+ *
+ * Receivers are hashed onto a fixed set of single-threaded stripes. Commands
+ * for the same device always land on the same stripe, so they run one at a
+ * time in submission order, while commands for different devices run in
+ * parallel across stripes. Callers that record completed commands do so on
+ * a separate completion thread, so a stripe never waits on their locks.
+ */
+public class CommandScheduler implements AutoCloseable {
+    private final ExecutorService[] stripes;
+    private final ExecutorService completions = daemonThread("command-completions");
+
+    public CommandScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public CommandScheduler(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("Stripe count must be at least 1");
+        }
+        stripes = new ExecutorService[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = daemonThread("command-stripe-" + i);
+        }
+    }
+
+    private static ExecutorService daemonThread(String name) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the command on its receiver's stripe. The future completes with
+     * the command once it has executed, or exceptionally if it threw.
+     */
+    public <C extends Command> CompletableFuture<C> submit(C command) {
+        if (command instanceof MacroCommand) {
+            // A scene fans out to its devices' stripes instead of blocking one
+            return ((MacroCommand) command).executeAsync().thenApply(done -> command);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            command.execute();
+            return command;
+        }, stripeFor(command.getReceiver()));
+    }
+
+    /**
+     * Queues the command's undo on its receiver's stripe, behind any commands
+     * already queued for that receiver.
+     */
+    public <C extends Command> CompletableFuture<C> submitUndo(C command) {
+        if (command instanceof MacroCommand) {
+            return ((MacroCommand) command).undoAsync().thenApply(done -> command);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            command.undo();
+            return command;
+        }, stripeFor(command.getReceiver()));
+    }
+
+    ExecutorService stripeFor(Object receiver) {
+        int hash = System.identityHashCode(receiver);
+        hash ^= hash >>> 16;
+        return stripes[Math.floorMod(hash, stripes.length)];
+    }
+
+    /**
+     * Single thread for completion callbacks. Tasks run in the order they
+     * were queued, which for one stripe is the order its commands finished.
+     */
+    Executor completionExecutor() {
+        return completions;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Stops accepting commands and waits for queued ones to finish. If the
+     * calling thread is interrupted it stops waiting and keeps its interrupt
+     * status.
+     */
+    @Override
+    public void close() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdown();
+        }
+        try {
+            for (ExecutorService stripe : stripes) {
+                stripe.awaitTermination(1, TimeUnit.MINUTES);
+            }
+            // Stripes are idle, so no further completion callbacks can arrive
+            completions.shutdown();
+            completions.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
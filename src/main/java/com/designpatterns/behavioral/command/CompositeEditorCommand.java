@@ -0,0 +1,48 @@
+package com.designpatterns.behavioral.command;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command that applies several editor commands as one unit: they execute in
+ * order and undo in reverse order.
+ */
+public class CompositeEditorCommand implements EditorCommand {
+    private final List<EditorCommand> commands;
+
+    public CompositeEditorCommand(List<? extends EditorCommand> commands) {
+        this.commands = new ArrayList<>(commands);
+    }
+
+    @Override
+    public void execute() {
+        for (EditorCommand command : commands) {
+            command.execute();
+        }
+    }
+
+    @Override
+    public void undo() {
+        for (int i = commands.size() - 1; i >= 0; i--) {
+            commands.get(i).undo();
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Batch of " + commands.size() + " commands";
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        long size = BASE_SIZE_BYTES;
+        for (EditorCommand command : commands) {
+            size += command.getEstimatedSize();
+        }
+        return size;
+    }
+
+    public List<EditorCommand> getCommands() {
+        return new ArrayList<>(commands);
+    }
+}
@@ -5,21 +5,21 @@ package com.designpatterns.behavioral.command;
  */
 public class DeleteTextCommand implements EditorCommand {
     private final TextEditor editor;
-    private final int length;
+    private int length;
     private String deletedText;
-    private final int originalPosition;
+    private int originalPosition;
 
     public DeleteTextCommand(TextEditor editor, int length) {
         this.editor = editor;
         this.length = length;
-        this.originalPosition = editor.getCursorPosition();
-        // Store the text that will be deleted for undo
-        int startPos = Math.max(0, originalPosition - length);
-        this.deletedText = editor.getContent().substring(startPos, originalPosition);
     }
 
     @Override
     public void execute() {
+        // Capture the position and the text that will be deleted for undo
+        originalPosition = editor.getCursorPosition();
+        int startPos = Math.max(0, originalPosition - length);
+        deletedText = editor.getText(startPos, originalPosition);
         editor.deleteText(length);
     }
 
@@ -30,8 +30,39 @@ public class DeleteTextCommand implements EditorCommand {
         editor.moveCursor(originalPosition);
     }
 
+    /**
+     * Absorbs a delete that continues backwards from where this one ended.
+     */
+    @Override
+    public boolean mergeWith(EditorCommand next) {
+        if (!(next instanceof DeleteTextCommand)) {
+            return false;
+        }
+        DeleteTextCommand delete = (DeleteTextCommand) next;
+        if (delete.editor != editor || delete.originalPosition != originalPosition - length) {
+            return false;
+        }
+        deletedText = delete.deletedText + deletedText;
+        length += delete.length;
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return "Delete " + length + " characters";
     }
+
+    @Override
+    public long getEstimatedSize() {
+        return BASE_SIZE_BYTES + (deletedText == null ? 0L : 2L * deletedText.length());
+    }
+
+    // Package-private accessors for journaling
+    TextEditor getEditor() {
+        return editor;
+    }
+
+    int getLength() {
+        return length;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.designpatterns.behavioral.command;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary encoding of {@link SmartHomeController} activity for the
+ * {@link CommandJournal}. Devices are identified by their location, so each
+ * light and thermostat location must be unique.
+ */
+final class DeviceJournalCodec {
+    private static final byte LIGHT_ON = 1;
+    private static final byte LIGHT_DIM = 2;
+    private static final byte THERMOSTAT_SET = 3;
+    private static final byte UNDO = 4;
+    private static final byte MACRO = 5;
+
+    private DeviceJournalCodec() {
+    }
+
+    static byte[] encodeExecute(Command command, Map<String, Light> lights, Map<String, Thermostat> thermostats) {
+        if (command instanceof LightOnCommand) {
+            Light light = ((LightOnCommand) command).getLight();
+            requireRegistered(light, light.getLocation(), lights);
+            return JournalEncoding.encode(out -> {
+                out.writeByte(LIGHT_ON);
+                JournalEncoding.writeString(out, light.getLocation());
+            });
+        }
+        if (command instanceof LightDimCommand) {
+            LightDimCommand dim = (LightDimCommand) command;
+            Light light = dim.getLight();
+            requireRegistered(light, light.getLocation(), lights);
+            return JournalEncoding.encode(out -> {
+                out.writeByte(LIGHT_DIM);
+                JournalEncoding.writeString(out, light.getLocation());
+                out.writeInt(dim.getDimLevel());
+            });
+        }
+        if (command instanceof ThermostatSetCommand) {
+            ThermostatSetCommand set = (ThermostatSetCommand) command;
+            Thermostat thermostat = set.getThermostat();
+            requireRegistered(thermostat, thermostat.getLocation(), thermostats);
+            return JournalEncoding.encode(out -> {
+                out.writeByte(THERMOSTAT_SET);
+                JournalEncoding.writeString(out, thermostat.getLocation());
+                out.writeInt(set.getTargetTemperature());
+            });
+        }
+        if (command instanceof MacroCommand) {
+            MacroCommand macro = (MacroCommand) command;
+            List<byte[]> children = new ArrayList<>();
+            for (Command child : macro.getChildren()) {
+                children.add(encodeExecute(child, lights, thermostats));
+            }
+            return JournalEncoding.encode(out -> {
+                out.writeByte(MACRO);
+                JournalEncoding.writeString(out, macro.getName());
+                out.writeInt(children.size());
+                for (byte[] child : children) {
+                    out.writeInt(child.length);
+                    out.write(child);
+                }
+            });
+        }
+        throw new IllegalArgumentException("Cannot journal command: " + command.getDescription());
+    }
+
+    private static <T> void requireRegistered(T device, String location, Map<String, T> devices) {
+        // Locations are unique, so one lookup plus an identity check suffices
+        if (devices.get(location) != device) {
+            throw new IllegalArgumentException("Device is not registered with the journaled controller");
+        }
+    }
+
+    static byte[] encodeUndo() {
+        return new byte[] {UNDO};
+    }
+
+    static void replay(byte[] record, SmartHomeController controller,
+            Map<String, Light> lights, Map<String, Thermostat> thermostats) {
+        if (record.length == 1 && record[0] == UNDO) {
+            controller.undoLastCommand();
+        } else {
+            controller.executeCommand(decodeCommand(record, lights, thermostats));
+        }
+    }
+
+    private static Command decodeCommand(byte[] record, Map<String, Light> lights,
+            Map<String, Thermostat> thermostats) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            switch (type) {
+                case LIGHT_ON:
+                    return new LightOnCommand(lookup(lights, JournalEncoding.readString(in)));
+                case LIGHT_DIM:
+                    return new LightDimCommand(lookup(lights, JournalEncoding.readString(in)), in.readInt());
+                case THERMOSTAT_SET:
+                    return new ThermostatSetCommand(lookup(thermostats, JournalEncoding.readString(in)), in.readInt());
+                case MACRO:
+                    String name = JournalEncoding.readString(in);
+                    int count = in.readInt();
+                    List<Command> children = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        byte[] child = new byte[in.readInt()];
+                        in.readFully(child);
+                        children.add(decodeCommand(child, lights, thermostats));
+                    }
+                    return new MacroCommand(name, children);
+                default:
+                    throw new IllegalStateException("Unknown journal record type: " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt journal record", e);
+        }
+    }
+
+    private static <T> T lookup(Map<String, T> devices, String location) {
+        T device = devices.get(location);
+        if (device == null) {
+            throw new IllegalStateException("Journal refers to unknown device: " + location);
+        }
+        return device;
+    }
+
+    static byte[] encodeSnapshot(Map<String, Light> lights, Map<String, Thermostat> thermostats) {
+        return JournalEncoding.encode(out -> {
+            out.writeInt(lights.size());
+            for (Light light : lights.values()) {
+                JournalEncoding.writeString(out, light.getLocation());
+                out.writeInt(light.getBrightness());
+            }
+            out.writeInt(thermostats.size());
+            for (Thermostat thermostat : thermostats.values()) {
+                JournalEncoding.writeString(out, thermostat.getLocation());
+                out.writeInt(thermostat.getTemperature());
+                out.writeBoolean(thermostat.isOn());
+            }
+        });
+    }
+
+    static void loadSnapshot(byte[] snapshot, Map<String, Light> lights, Map<String, Thermostat> thermostats) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            int lightCount = in.readInt();
+            for (int i = 0; i < lightCount; i++) {
+                // A light is on exactly when its brightness is above zero
+                lookup(lights, JournalEncoding.readString(in)).dim(in.readInt());
+            }
+            int thermostatCount = in.readInt();
+            for (int i = 0; i < thermostatCount; i++) {
+                Thermostat thermostat = lookup(thermostats, JournalEncoding.readString(in));
+                thermostat.setTemperature(in.readInt());
+                if (in.readBoolean()) {
+                    thermostat.turnOn();
+                } else {
+                    thermostat.turnOff();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt journal snapshot", e);
+        }
+    }
+}
@@ -4,9 +4,29 @@ package com.designpatterns.behavioral.command;
  * The Command interface that all concrete commands must implement
  */
 public interface EditorCommand {
+    /** Rough per-command cost of the object headers and fields. */
+    long BASE_SIZE_BYTES = 64;
+
     void execute();
 
     void undo();
 
     String getDescription();
-}
\ No newline at end of file
+
+    /**
+     * Estimated heap retained while this command sits in the undo history,
+     * used by {@link CommandManager} to bound history memory.
+     */
+    default long getEstimatedSize() {
+        return BASE_SIZE_BYTES;
+    }
+
+    /**
+     * Tries to fold {@code next}, which has just been executed, into this
+     * command so both undo as one step. Returns false if they are not
+     * compatible.
+     */
+    default boolean mergeWith(EditorCommand next) {
+        return false;
+    }
+}
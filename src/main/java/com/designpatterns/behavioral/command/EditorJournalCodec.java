@@ -0,0 +1,140 @@
+package com.designpatterns.behavioral.command;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of {@link CommandManager} activity for the
+ * {@link CommandJournal}. Each record stores the cursor position the command
+ * ran at, which is enough to rebuild the command on replay since commands
+ * capture the rest of their state when they execute.
+ */
+final class EditorJournalCodec {
+    private static final byte EXECUTE = 1;
+    private static final byte BATCH = 2;
+    private static final byte UNDO = 3;
+    private static final byte REDO = 4;
+    private static final byte COALESCING = 5;
+
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+
+    private EditorJournalCodec() {
+    }
+
+    static byte[] encodeExecute(TextEditor editor, EditorCommand command) {
+        return JournalEncoding.encode(out -> {
+            out.writeByte(EXECUTE);
+            out.writeInt(editor.getCursorPosition());
+            writeCommand(out, editor, command);
+        });
+    }
+
+    static byte[] encodeBatch(TextEditor editor, List<? extends EditorCommand> commands) {
+        return JournalEncoding.encode(out -> {
+            out.writeByte(BATCH);
+            out.writeInt(editor.getCursorPosition());
+            out.writeInt(commands.size());
+            for (EditorCommand command : commands) {
+                writeCommand(out, editor, command);
+            }
+        });
+    }
+
+    static byte[] encodeUndo() {
+        return new byte[] {UNDO};
+    }
+
+    static byte[] encodeRedo() {
+        return new byte[] {REDO};
+    }
+
+    static byte[] encodeCoalescing(boolean coalescing) {
+        return new byte[] {COALESCING, (byte) (coalescing ? 1 : 0)};
+    }
+
+    private static void writeCommand(DataOutputStream out, TextEditor editor, EditorCommand command)
+            throws IOException {
+        if (command instanceof InsertTextCommand && ((InsertTextCommand) command).getEditor() == editor) {
+            out.writeByte(INSERT);
+            JournalEncoding.writeString(out, ((InsertTextCommand) command).getText());
+        } else if (command instanceof DeleteTextCommand && ((DeleteTextCommand) command).getEditor() == editor) {
+            out.writeByte(DELETE);
+            out.writeInt(((DeleteTextCommand) command).getLength());
+        } else {
+            throw new IllegalArgumentException("Cannot journal command: " + command.getDescription());
+        }
+    }
+
+    static void replay(byte[] record, CommandManager manager, TextEditor editor) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            switch (type) {
+                case EXECUTE:
+                    editor.moveCursor(in.readInt());
+                    manager.executeCommand(readCommand(in, editor));
+                    break;
+                case BATCH:
+                    editor.moveCursor(in.readInt());
+                    int count = in.readInt();
+                    List<EditorCommand> commands = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        commands.add(readCommand(in, editor));
+                    }
+                    manager.executeBatch(commands);
+                    break;
+                case UNDO:
+                    manager.undo();
+                    break;
+                case REDO:
+                    manager.redo();
+                    break;
+                case COALESCING:
+                    manager.setCoalescing(in.readBoolean());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown journal record type: " + type);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt journal record", e);
+        }
+    }
+
+    private static EditorCommand readCommand(DataInputStream in, TextEditor editor) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+            case INSERT:
+                return new InsertTextCommand(editor, JournalEncoding.readString(in));
+            case DELETE:
+                return new DeleteTextCommand(editor, in.readInt());
+            default:
+                throw new IllegalStateException("Unknown journaled command: " + kind);
+        }
+    }
+
+    static byte[] encodeSnapshot(TextEditor editor, boolean coalescing) {
+        return JournalEncoding.encode(out -> {
+            JournalEncoding.writeString(out, editor.getContent());
+            out.writeInt(editor.getCursorPosition());
+            out.writeBoolean(coalescing);
+        });
+    }
+
+    /**
+     * Restores a snapshot into an empty editor and returns the coalescing flag.
+     */
+    static boolean loadSnapshot(byte[] snapshot, TextEditor editor) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(snapshot))) {
+            editor.insertText(JournalEncoding.readString(in));
+            editor.moveCursor(in.readInt());
+            return in.readBoolean();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt journal snapshot", e);
+        }
+    }
+}
@@ -5,18 +5,19 @@ package com.designpatterns.behavioral.command;
  */
 public class InsertTextCommand implements EditorCommand {
     private final TextEditor editor;
-    private final String text;
-    private final int originalPosition;
+    private final StringBuilder text;
+    private int originalPosition;
 
     public InsertTextCommand(TextEditor editor, String text) {
         this.editor = editor;
-        this.text = text;
-        this.originalPosition = editor.getCursorPosition();
+        this.text = new StringBuilder(text);
     }
 
     @Override
     public void execute() {
-        editor.insertText(text);
+        // Capture the position on execution so commands can be built ahead of time
+        originalPosition = editor.getCursorPosition();
+        editor.insertText(text.toString());
     }
 
     @Override
@@ -25,8 +26,38 @@ public class InsertTextCommand implements EditorCommand {
         editor.deleteText(text.length());
     }
 
+    /**
+     * Absorbs an insert typed directly after this one.
+     */
+    @Override
+    public boolean mergeWith(EditorCommand next) {
+        if (!(next instanceof InsertTextCommand)) {
+            return false;
+        }
+        InsertTextCommand insert = (InsertTextCommand) next;
+        if (insert.editor != editor || insert.originalPosition != originalPosition + text.length()) {
+            return false;
+        }
+        text.append(insert.text);
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return "Insert '" + text + "'";
     }
+
+    @Override
+    public long getEstimatedSize() {
+        return BASE_SIZE_BYTES + 2L * text.length();
+    }
+
+    // Package-private accessors for journaling
+    TextEditor getEditor() {
+        return editor;
+    }
+
+    String getText() {
+        return text.toString();
+    }
 }
\ No newline at end of file
@@ -24,8 +24,21 @@ public class LightDimCommand implements Command {
         light.dim(previousLevel);
     }
 
+    @Override
+    public Object getReceiver() {
+        return light;
+    }
+
     @Override
     public String getDescription() {
         return "Dim " + light.getLocation() + " light to " + dimLevel + "%";
     }
+
+    Light getLight() {
+        return light;
+    }
+
+    int getDimLevel() {
+        return dimLevel;
+    }
 }
\ No newline at end of file
@@ -20,8 +20,17 @@ public class LightOnCommand implements Command {
         light.turnOff();
     }
 
+    @Override
+    public Object getReceiver() {
+        return light;
+    }
+
     @Override
     public String getDescription() {
         return "Turn ON " + light.getLocation() + " light";
     }
+
+    Light getLight() {
+        return light;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.designpatterns.behavioral.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Scene command that applies many device commands as one history entry.
+ *
+ * Children are grouped by receiver. Each group runs in order on one thread and
+ * different groups run in parallel, so a scene touching hundreds of devices
+ * takes roughly as long as its slowest device. With a {@link CommandScheduler}
+ * each group runs on its receiver's stripe, in line with other commands for
+ * that device. A child that throws stops the rest of its own group but not
+ * other groups. The scene is all or nothing: if any child failed, every child
+ * that succeeded is undone and the first failure is thrown, with the others
+ * attached as suppressed exceptions and kept in {@link #getFailures()}.
+ */
+public class MacroCommand implements Command {
+    private final String name;
+    private final List<Command> children;
+    private final CommandScheduler scheduler;
+    private List<List<Command>> applied = Collections.emptyList();
+    private List<RuntimeException> failures = Collections.emptyList();
+    private long lastExecutionNanos;
+
+    public MacroCommand(String name, List<? extends Command> children) {
+        this(name, children, null);
+    }
+
+    public MacroCommand(String name, List<? extends Command> children, CommandScheduler scheduler) {
+        this.name = name;
+        this.children = new ArrayList<>(children);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Runs the scene and waits for it. Must not be called from a stripe
+     * thread; {@link CommandScheduler#submit(Command)} runs scenes without
+     * blocking one.
+     */
+    @Override
+    public void execute() {
+        join(executeAsync());
+    }
+
+    CompletableFuture<Void> executeAsync() {
+        long start = System.nanoTime();
+        Map<Object, List<Command>> groups = new IdentityHashMap<>();
+        for (Command child : children) {
+            groups.computeIfAbsent(child.getReceiver(), receiver -> new ArrayList<>()).add(child);
+        }
+        List<List<Command>> succeeded = new ArrayList<>(groups.size());
+        List<RuntimeException> failed = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> done = runGroups(new ArrayList<>(groups.values()), group -> {
+            List<Command> executed = new ArrayList<>(group.size());
+            for (Command child : group) {
+                try {
+                    child.execute();
+                } catch (RuntimeException e) {
+                    failed.add(e);
+                    break;
+                }
+                executed.add(child);
+            }
+            synchronized (succeeded) {
+                succeeded.add(executed);
+            }
+        });
+        return done.thenCompose(ignored -> {
+            applied = succeeded;
+            failures = new ArrayList<>(failed);
+            lastExecutionNanos = System.nanoTime() - start;
+            if (failures.isEmpty()) {
+                return done;
+            }
+            return undoAsync().thenRun(() -> {
+                RuntimeException first = failures.get(0);
+                for (int i = 1; i < failures.size(); i++) {
+                    first.addSuppressed(failures.get(i));
+                }
+                throw first;
+            });
+        });
+    }
+
+    @Override
+    public void undo() {
+        join(undoAsync());
+    }
+
+    CompletableFuture<Void> undoAsync() {
+        return runGroups(applied, group -> {
+            for (int i = group.size() - 1; i >= 0; i--) {
+                group.get(i).undo();
+            }
+        }).thenRun(() -> applied = Collections.emptyList());
+    }
+
+    private CompletableFuture<Void> runGroups(List<List<Command>> groups, Consumer<List<Command>> action) {
+        if (scheduler == null && groups.size() <= 1) {
+            for (List<Command> group : groups) {
+                action.accept(group);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(groups.size());
+        for (List<Command> group : groups) {
+            if (group.isEmpty()) {
+                continue;
+            }
+            Executor executor = scheduler != null
+                    ? scheduler.stripeFor(group.get(0).getReceiver())
+                    : ForkJoinPool.commonPool();
+            futures.add(CompletableFuture.runAsync(() -> action.accept(group), executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static void join(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return name + " (" + children.size() + " commands)";
+    }
+
+    public int getSucceededCount() {
+        int count = 0;
+        for (List<Command> group : applied) {
+            count += group.size();
+        }
+        return count;
+    }
+
+    /**
+     * Exceptions thrown by children during the last execution, at most one
+     * per device. Empty when the last execution succeeded.
+     */
+    public List<RuntimeException> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * Wall-clock time of the last execution across all children.
+     */
+    public long getLastExecutionNanos() {
+        return lastExecutionNanos;
+    }
+
+    List<Command> getChildren() {
+        return Collections.unmodifiableList(children);
+    }
+
+    String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,98 @@
+package com.designpatterns.behavioral.command;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, array-backed queue for many producers and a single consumer.
+ *
+ * Each slot carries a sequence number that says whose turn it is: producers
+ * claim a slot by advancing the shared tail with one CAS and publish the
+ * element by bumping the slot's sequence, and the consumer frees the slot by
+ * bumping it again for the next lap. No locks are taken, a full queue fails
+ * {@link #offer(Object)} immediately, and a failed CAS only means another
+ * producer made progress.
+ */
+final class MpscArrayQueue<E> {
+    private final AtomicReferenceArray<E> buffer;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    // Only the consumer thread writes this; volatile so size() can read it
+    private volatile long consumerIndex;
+
+    MpscArrayQueue(int requestedCapacity) {
+        if (requestedCapacity < 1 || requestedCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        int capacity = Integer.highestOneBit(requestedCapacity);
+        if (capacity < requestedCapacity) {
+            capacity <<= 1;
+        }
+        buffer = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds the element, or returns false at once if the queue is full.
+     */
+    boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        while (true) {
+            long tail = producerIndex.get();
+            int slot = (int) (tail & mask);
+            long sequence = sequences.get(slot);
+            if (sequence == tail) {
+                if (producerIndex.compareAndSet(tail, tail + 1)) {
+                    buffer.lazySet(slot, element);
+                    sequences.set(slot, tail + 1);
+                    return true;
+                }
+            } else if (sequence < tail) {
+                // The consumer has not freed this slot from the previous lap
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest published element, or returns null if there is none.
+     * Must only be called from the consumer thread.
+     */
+    E poll() {
+        long head = consumerIndex;
+        int slot = (int) (head & mask);
+        if (sequences.get(slot) != head + 1) {
+            return null;
+        }
+        E element = buffer.get(slot);
+        buffer.lazySet(slot, null);
+        sequences.set(slot, head + mask + 1);
+        consumerIndex = head + 1;
+        return element;
+    }
+
+    /**
+     * True when nothing is ready for the consumer. Consumer thread only.
+     */
+    boolean isEmpty() {
+        long head = consumerIndex;
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    int size() {
+        long size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
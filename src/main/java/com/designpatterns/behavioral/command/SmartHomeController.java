@@ -1,25 +1,168 @@
 package com.designpatterns.behavioral.command;
 
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Stack;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * SmartHomeController class acting as the invoker in the Command pattern.
  * Manages command execution and maintains history for undo operations.
+ *
+ * A controller created by {@link #recover(CommandJournal, Collection, Collection)}
+ * journals every command and undo, so device state and history survive a
+ * restart. {@link #checkpoint()} snapshots device state and compacts the
+ * journal.
+ *
+ * With a {@link CommandScheduler}, {@link #executeCommandAsync(Command)} runs
+ * commands off the caller's thread: one device's commands stay in order while
+ * different devices are driven in parallel. {@link #executeCommand(Command)}
+ * and undos then run on the device's stripe too, so they never overlap a
+ * queued command for the same device.
  */
 public class SmartHomeController {
     private final Stack<Command> history = new Stack<>();
+    private CommandJournal journal;
+    private Map<String, Light> lights;
+    private Map<String, Thermostat> thermostats;
+    private final CommandScheduler scheduler;
 
+    public SmartHomeController() {
+        this(null);
+    }
+
+    public SmartHomeController(CommandScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Restores the given devices from a journal and keeps journaling through
+     * the returned controller. Devices are matched by location.
+     */
+    public static SmartHomeController recover(CommandJournal journal, Collection<Light> lights,
+            Collection<Thermostat> thermostats) throws IOException {
+        return recover(journal, lights, thermostats, null);
+    }
+
+    public static SmartHomeController recover(CommandJournal journal, Collection<Light> lights,
+            Collection<Thermostat> thermostats, CommandScheduler scheduler) throws IOException {
+        Map<String, Light> lightsByLocation = new LinkedHashMap<>();
+        for (Light light : lights) {
+            lightsByLocation.put(light.getLocation(), light);
+        }
+        Map<String, Thermostat> thermostatsByLocation = new LinkedHashMap<>();
+        for (Thermostat thermostat : thermostats) {
+            thermostatsByLocation.put(thermostat.getLocation(), thermostat);
+        }
+        SmartHomeController controller = new SmartHomeController(scheduler);
+        journal.recover(
+                snapshot -> DeviceJournalCodec.loadSnapshot(snapshot, lightsByLocation, thermostatsByLocation),
+                record -> DeviceJournalCodec.replay(record, controller, lightsByLocation, thermostatsByLocation));
+        controller.journal = journal;
+        controller.lights = lightsByLocation;
+        controller.thermostats = thermostatsByLocation;
+        return controller;
+    }
+
+    /**
+     * Snapshots device state and compacts the journal. Command history is
+     * cleared, since it could not be replayed from the snapshot.
+     */
+    public void checkpoint() {
+        if (journal == null) {
+            throw new IllegalStateException("Checkpoints require a journaled SmartHomeController");
+        }
+        journal.snapshot(DeviceJournalCodec.encodeSnapshot(lights, thermostats));
+        history.clear();
+    }
+
+    /**
+     * Runs the command and waits for it. With a scheduler it runs on the
+     * device's stripe, behind any commands already queued for that device.
+     */
     public void executeCommand(Command command) {
-        command.execute();
-        history.push(command);
+        byte[] journalRecord = journal != null ? DeviceJournalCodec.encodeExecute(command, lights, thermostats) : null;
+        // Held across execute so no other record lands between this one and its abort. Stripes
+        // never take this lock, since async completions are recorded on the completion thread.
+        synchronized (history) {
+            if (journalRecord != null) {
+                journal.append(journalRecord);
+            }
+            try {
+                if (scheduler == null) {
+                    command.execute();
+                } else {
+                    await(scheduler.submit(command));
+                }
+            } catch (RuntimeException e) {
+                if (journalRecord != null) {
+                    journal.abort();
+                }
+                throw e;
+            }
+            history.push(command);
+        }
+    }
+
+    /**
+     * Schedules the command on its device's stripe and returns at once. The
+     * command joins the undo history when it completes; failed commands do not.
+     * Unlike {@link #executeCommand(Command)}, the journal records the command
+     * once it has completed, so a crash can lose a command that was running.
+     */
+    public <C extends Command> CompletableFuture<C> executeCommandAsync(C command) {
+        if (scheduler == null) {
+            throw new IllegalStateException("Asynchronous execution requires a CommandScheduler");
+        }
+        byte[] journalRecord = journal != null ? DeviceJournalCodec.encodeExecute(command, lights, thermostats) : null;
+        // Recorded off the stripe: a synchronous scene may hold the history lock while it waits on stripes
+        return scheduler.submit(command).thenApplyAsync(executed -> {
+            // History and journal must agree on order so replayed undos match
+            synchronized (history) {
+                history.push(executed);
+                if (journalRecord != null) {
+                    journal.append(journalRecord);
+                }
+            }
+            return executed;
+        }, scheduler.completionExecutor());
     }
 
+    /**
+     * Undoes the newest command. With a scheduler the undo runs on the
+     * command's stripe and this method waits for it.
+     */
     public void undoLastCommand() {
-        if (!history.isEmpty()) {
-            Command command = history.pop();
+        Command command = null;
+        synchronized (history) {
+            if (!history.isEmpty()) {
+                if (journal != null) {
+                    journal.append(DeviceJournalCodec.encodeUndo());
+                }
+                command = history.pop();
+            }
+        }
+        if (command == null) {
+            System.out.println("No commands to undo");
+        } else if (scheduler == null) {
             command.undo();
         } else {
-            System.out.println("No commands to undo");
+            await(scheduler.submitUndo(command));
+        }
+    }
+
+    // Waits for stripe work, rethrowing what the command threw
+    private static void await(CompletableFuture<?> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 
@@ -39,4 +182,4 @@ public class SmartHomeController {
         }
         return "No commands in history";
     }
-}
\ No newline at end of file
+}
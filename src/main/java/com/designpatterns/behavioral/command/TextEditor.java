@@ -1,25 +1,29 @@
 package com.designpatterns.behavioral.command;
 
+import com.designpatterns.util.Rope;
+
 /**
- * The Receiver class that performs the actual text editing operations
+ * The Receiver class that performs the actual text editing operations.
+ * Content is held in a {@link Rope}, so edits anywhere in a large document
+ * cost O(log n) and reading a range does not copy the whole buffer.
  */
 public class TextEditor {
-    private StringBuilder content;
+    private Rope content;
     private int cursorPosition;
 
     public TextEditor() {
-        this.content = new StringBuilder();
+        this.content = Rope.EMPTY;
         this.cursorPosition = 0;
     }
 
     public void insertText(String text) {
-        content.insert(cursorPosition, text);
+        content = content.insert(cursorPosition, text);
         cursorPosition += text.length();
     }
 
     public void deleteText(int length) {
         if (cursorPosition >= length) {
-            content.delete(cursorPosition - length, cursorPosition);
+            content = content.delete(cursorPosition - length, cursorPosition);
             cursorPosition -= length;
         }
     }
@@ -34,7 +38,19 @@ public class TextEditor {
         return content.toString();
     }
 
+    /**
+     * Returns the text between {@code start} (inclusive) and {@code end}
+     * (exclusive) without materializing the full document.
+     */
+    public String getText(int start, int end) {
+        return content.substring(start, end);
+    }
+
+    public int getLength() {
+        return content.length();
+    }
+
     public int getCursorPosition() {
         return cursorPosition;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,160 @@
+package com.designpatterns.behavioral.command;
+
+/**
+ * A single insert or delete at an absolute position, as exchanged between
+ * collaborating editors.
+ *
+ * {@link #transform(TextOperation, TextOperation)} rebases one operation over
+ * a concurrent one so that applying either in the other's wake gives the same
+ * document. Equal-position inserts are ordered by site id, and text inserted
+ * strictly inside a concurrently deleted range is deleted with it, which keeps
+ * every operation a single contiguous edit.
+ */
+public final class TextOperation {
+    private final int siteId;
+    private final int position;
+    private final String insertedText;
+    private final int deletedLength;
+
+    private TextOperation(int siteId, int position, String insertedText, int deletedLength) {
+        if (position < 0 || deletedLength < 0) {
+            throw new IllegalArgumentException("Position and length must not be negative");
+        }
+        this.siteId = siteId;
+        this.position = position;
+        this.insertedText = insertedText;
+        this.deletedLength = deletedLength;
+    }
+
+    public static TextOperation insert(int siteId, int position, String text) {
+        return new TextOperation(siteId, position, text, 0);
+    }
+
+    public static TextOperation delete(int siteId, int position, int length) {
+        return new TextOperation(siteId, position, null, length);
+    }
+
+    public boolean isInsert() {
+        return insertedText != null;
+    }
+
+    public boolean isNoOp() {
+        return isInsert() ? insertedText.isEmpty() : deletedLength == 0;
+    }
+
+    public int getSiteId() {
+        return siteId;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public String getInsertedText() {
+        return insertedText;
+    }
+
+    public int getDeletedLength() {
+        return deletedLength;
+    }
+
+    /**
+     * Applies this operation to the editor, keeping its cursor on the same
+     * piece of text.
+     */
+    public void applyTo(TextEditor editor) {
+        if (position + deletedLength > editor.getLength()) {
+            throw new IllegalStateException("Operation " + this + " does not fit a document of "
+                    + editor.getLength() + " characters");
+        }
+        int cursor = transformPosition(editor.getCursorPosition());
+        if (isInsert()) {
+            editor.moveCursor(position);
+            editor.insertText(insertedText);
+        } else if (deletedLength > 0) {
+            editor.moveCursor(position + deletedLength);
+            editor.deleteText(deletedLength);
+        }
+        editor.moveCursor(cursor);
+    }
+
+    /**
+     * Maps a position in the document before this operation to the
+     * document after it.
+     */
+    public int transformPosition(int index) {
+        if (isInsert()) {
+            return index > position ? index + insertedText.length() : index;
+        }
+        if (index <= position) {
+            return index;
+        }
+        return Math.max(position, index - deletedLength);
+    }
+
+    /**
+     * Returns {@code op} rebased to apply after {@code applied}, where both
+     * were made against the same document.
+     *
+     * An insert that lands strictly inside a concurrently deleted range is
+     * dropped on every replica: it becomes a no-op after the delete, and the
+     * delete widens to cover it. Keeping the text would split the delete in
+     * two, and operations here are deliberately single contiguous edits.
+     */
+    public static TextOperation transform(TextOperation op, TextOperation applied) {
+        if (op.isInsert()) {
+            if (applied.isInsert()) {
+                int otherLength = applied.insertedText.length();
+                boolean before = op.position < applied.position
+                        || (op.position == applied.position && op.siteId < applied.siteId);
+                return before || otherLength == 0 ? op
+                        : insert(op.siteId, op.position + otherLength, op.insertedText);
+            }
+            int deleteEnd = applied.position + applied.deletedLength;
+            if (op.position <= applied.position) {
+                return op;
+            }
+            if (op.position >= deleteEnd) {
+                return insert(op.siteId, op.position - applied.deletedLength, op.insertedText);
+            }
+            // Inserted inside the deleted range: the delete removes it too
+            return insert(op.siteId, applied.position, "");
+        }
+        int end = op.position + op.deletedLength;
+        if (applied.isInsert()) {
+            int otherLength = applied.insertedText.length();
+            if (applied.position <= op.position) {
+                return delete(op.siteId, op.position + otherLength, op.deletedLength);
+            }
+            if (applied.position >= end) {
+                return op;
+            }
+            return delete(op.siteId, op.position, op.deletedLength + otherLength);
+        }
+        int start = applied.transformPosition(op.position);
+        return delete(op.siteId, start, applied.transformPosition(end) - start);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof TextOperation)) {
+            return false;
+        }
+        TextOperation that = (TextOperation) other;
+        return siteId == that.siteId && position == that.position && deletedLength == that.deletedLength
+                && (insertedText == null ? that.insertedText == null : insertedText.equals(that.insertedText));
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 31 * siteId + position;
+        hash = 31 * hash + deletedLength;
+        return 31 * hash + (insertedText == null ? 0 : insertedText.hashCode());
+    }
+
+    @Override
+    public String toString() {
+        return isInsert() ? "insert(" + position + ", '" + insertedText + "')@" + siteId
+                : "delete(" + position + ", " + deletedLength + ")@" + siteId;
+    }
+}
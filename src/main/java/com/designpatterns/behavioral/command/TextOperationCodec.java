@@ -0,0 +1,95 @@
+package com.designpatterns.behavioral.command;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary wire format for {@link TextOperation}s.
+ *
+ * A message is the revision the operation was based on followed by the
+ * operation: a kind byte, then site id, position and length as unsigned
+ * varints, then the UTF-8 text of an insert. A typical keystroke, one
+ * character typed past the first 128 characters at a revision past 127,
+ * takes seven bytes.
+ */
+final class TextOperationCodec {
+    private static final byte INSERT = 1;
+    private static final byte DELETE = 2;
+
+    private TextOperationCodec() {
+    }
+
+    static byte[] encode(int revision, TextOperation operation) {
+        byte[] text = operation.isInsert() ? operation.getInsertedText().getBytes(StandardCharsets.UTF_8) : null;
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 * 5 + (text != null ? text.length : 0));
+        writeVarint(buffer, revision);
+        buffer.put(operation.isInsert() ? INSERT : DELETE);
+        writeVarint(buffer, operation.getSiteId());
+        writeVarint(buffer, operation.getPosition());
+        if (text != null) {
+            writeVarint(buffer, text.length);
+            buffer.put(text);
+        } else {
+            writeVarint(buffer, operation.getDeletedLength());
+        }
+        byte[] message = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(message);
+        return message;
+    }
+
+    /**
+     * Reads the revision at the start of a message, leaving the buffer at
+     * the operation.
+     */
+    static int readRevision(ByteBuffer message) {
+        return readVarint(message);
+    }
+
+    static TextOperation readOperation(ByteBuffer message) {
+        byte kind = message.get();
+        int siteId = readVarint(message);
+        int position = readVarint(message);
+        int length = readVarint(message);
+        switch (kind) {
+            case INSERT:
+                if (length > message.remaining()) {
+                    throw new IllegalArgumentException("Insert of " + length + " bytes exceeds the message");
+                }
+                byte[] text = new byte[length];
+                message.get(text);
+                return TextOperation.insert(siteId, position, new String(text, StandardCharsets.UTF_8));
+            case DELETE:
+                return TextOperation.delete(siteId, position, length);
+            default:
+                throw new IllegalArgumentException("Unknown operation kind: " + kind);
+        }
+    }
+
+    static void writeVarint(ByteBuffer buffer, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Varints must not be negative: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int readVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte next = buffer.get();
+            value |= (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                // A fifth byte can set the sign bit; the writer never emits negative values
+                if (value < 0) {
+                    throw new IllegalArgumentException("Varint out of range");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -24,8 +24,21 @@ public class ThermostatSetCommand implements Command {
         thermostat.setTemperature(previousTemperature);
     }
 
+    @Override
+    public Object getReceiver() {
+        return thermostat;
+    }
+
     @Override
     public String getDescription() {
         return "Set " + thermostat.getLocation() + " temperature to " + temperature + "°F";
     }
+
+    Thermostat getThermostat() {
+        return thermostat;
+    }
+
+    int getTargetTemperature() {
+        return temperature;
+    }
 }
\ No newline at end of file
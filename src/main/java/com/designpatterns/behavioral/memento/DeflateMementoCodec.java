@@ -0,0 +1,65 @@
+package com.designpatterns.behavioral.memento;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link MementoCodec} backed by {@link Deflater} at a fixed level.
+ */
+final class DeflateMementoCodec implements MementoCodec {
+    private final int level;
+
+    DeflateMementoCodec(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public byte[] encode(byte[] raw) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    @Override
+    public byte[] decode(ByteBuffer encoded, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(encoded);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength) {
+                int inflated = inflater.inflate(raw, read, rawLength - read);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalStateException("Truncated memento");
+                }
+                read += inflated;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt memento", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public String getName() {
+        if (level == Deflater.BEST_SPEED) {
+            return "deflate-fast";
+        }
+        return level == Deflater.DEFAULT_COMPRESSION ? "deflate" : "deflate-" + level;
+    }
+}
@@ -1,68 +1,130 @@
 package com.designpatterns.behavioral.memento;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
 /**
  * Caretaker class that manages the history of editor states
+ *
+ * With a keyframe interval above 1, each saved state is stored as a delta
+ * against the state before it, and every {@code keyframeInterval}-th state in
+ * a chain is a full keyframe. History memory then grows with the size of the
+ * edits rather than the size of the document, at the cost of replaying up to
+ * one chain of deltas on undo and redo.
+ *
+ * The undo stack lives in a {@link TieredMementoStore}. By default it keeps
+ * {@code MAX_HISTORY} undo steps on the heap; a store with a spill file keeps
+ * deeper history by compressing older states to disk. Closing the history
+ * closes the store and its spill file.
+ *
+ * Methods are synchronized, so a background thread may capture history
+ * while the editor thread undoes and redoes.
  */
-public class EditorHistory {
-    private final Deque<EditorMemento> undoStack;
+public class EditorHistory implements Closeable {
+    private final TieredMementoStore undoStack;
     private final Deque<EditorMemento> redoStack;
     private final TextEditor editor;
+    private final int keyframeInterval;
     private static final int MAX_HISTORY = 100;
 
     public EditorHistory(TextEditor editor) {
+        this(editor, 1);
+    }
+
+    /**
+     * @param keyframeInterval length of a delta chain, keyframe included;
+     *                         1 stores every state in full
+     */
+    public EditorHistory(TextEditor editor, int keyframeInterval) {
+        this(editor, keyframeInterval, new TieredMementoStore(MAX_HISTORY + 1)); // +1 for initial state
+    }
+
+    /**
+     * @param undoStore holds the undo states; its {@code maxEntries} includes
+     *                  the current state, so one less undo step is available
+     */
+    public EditorHistory(TextEditor editor, int keyframeInterval, TieredMementoStore undoStore) {
+        if (keyframeInterval < 1) {
+            throw new IllegalArgumentException("Keyframe interval must be at least 1");
+        }
         this.editor = editor;
-        this.undoStack = new ArrayDeque<>();
+        this.keyframeInterval = keyframeInterval;
+        this.undoStack = undoStore;
         this.redoStack = new ArrayDeque<>();
         // Save initial empty state
         save();
     }
 
-    public void save() {
-        EditorMemento memento = editor.save();
-        undoStack.push(memento);
+    public synchronized void save() {
+        EditorMemento memento = capture(undoStack.peek());
+        undoStack.push(memento); // The store drops the oldest state when full
         redoStack.clear(); // Clear redo stack when new change is made
-        if (undoStack.size() > MAX_HISTORY + 1) { // +1 for initial state
-            undoStack.removeLast();
+    }
+
+    // Snapshots the editor, as a delta against base when deltas are enabled
+    private EditorMemento capture(EditorMemento base) {
+        EditorMemento memento = editor.save();
+        if (keyframeInterval > 1 && base != null) {
+            memento = EditorMemento.delta(base, memento, keyframeInterval);
         }
+        return memento;
     }
 
-    public boolean undo() {
+    public synchronized boolean undo() {
         if (undoStack.size() <= 1) { // Keep at least one state (initial state)
             return false;
         }
 
-        EditorMemento currentState = editor.save();
-        redoStack.push(currentState);
         undoStack.pop(); // Remove current state
-        editor.restore(undoStack.peek()); // Restore to previous state
+        EditorMemento previous = undoStack.peek();
+        redoStack.push(capture(previous));
+        editor.restore(previous); // Restore to previous state
         return true;
     }
 
-    public boolean redo() {
+    public synchronized boolean redo() {
         if (redoStack.isEmpty()) {
             return false;
         }
 
         EditorMemento redoState = redoStack.pop();
-        undoStack.push(editor.save());
+        undoStack.push(capture(undoStack.peek()));
         editor.restore(redoState);
         return true;
     }
 
-    public int getUndoCount() {
+    public synchronized int getUndoCount() {
         return Math.max(0, undoStack.size() - 1); // Don't count initial state
     }
 
-    public int getRedoCount() {
+    public synchronized int getRedoCount() {
         return redoStack.size();
     }
 
-    public void clear() {
+    /**
+     * Estimated bytes of text held by the mementos in the undo and redo
+     * history. Keyframes count at full length even though their ropes share
+     * unchanged chunks, and states spilled to disk are not counted.
+     */
+    public synchronized long getHistoryMemoryUsage() {
+        long characters = 0;
+        characters += undoStack.getHeapStoredLength();
+        for (EditorMemento memento : redoStack) {
+            characters += memento.getStoredLength();
+        }
+        return 2 * characters;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        undoStack.close();
+    }
+
+    public synchronized void clear() {
         undoStack.clear();
         redoStack.clear();
         save(); // Save initial empty state
     }
-}
\ No newline at end of file
+}
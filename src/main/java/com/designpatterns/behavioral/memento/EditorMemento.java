@@ -1,22 +1,85 @@
 package com.designpatterns.behavioral.memento;
 
+import com.designpatterns.util.Rope;
+
 /**
  * Memento class that stores the state of the text editor
+ *
+ * A memento is either a full keyframe holding the whole content, or a delta
+ * that holds only the text that differs from a base memento: the changed
+ * middle between a common prefix and a common suffix. A delta's content is
+ * rebuilt on demand by applying the chain of deltas back to its keyframe.
+ *
+ * Content is an immutable {@link Rope}, so a keyframe shares every unchanged
+ * chunk with the editor state it was taken from and with neighbouring
+ * mementos; neither saving nor restoring copies the document.
  */
 public class EditorMemento {
-    private final String content;
+    private final Rope content;
     private final int cursorPosition;
     private final String selectedText;
+    // Delta state; base is null for keyframes
+    private final EditorMemento base;
+    private final int prefixLength;
+    private final int suffixLength;
+    private final int chainLength;
 
     public EditorMemento(String content, int cursorPosition, String selectedText) {
+        this(Rope.of(content), cursorPosition, selectedText);
+    }
+
+    EditorMemento(Rope content, int cursorPosition, String selectedText) {
         this.content = content;
         this.cursorPosition = cursorPosition;
         this.selectedText = selectedText;
+        this.base = null;
+        this.prefixLength = 0;
+        this.suffixLength = 0;
+        this.chainLength = 0;
+    }
+
+    private EditorMemento(EditorMemento base, int prefixLength, int suffixLength, Rope replacement,
+            int cursorPosition, String selectedText) {
+        this.content = replacement;
+        this.cursorPosition = cursorPosition;
+        this.selectedText = selectedText;
+        this.base = base;
+        this.prefixLength = prefixLength;
+        this.suffixLength = suffixLength;
+        this.chainLength = base.chainLength + 1;
+    }
+
+    /**
+     * Re-encodes a full memento as a delta against {@code base}. Returns the
+     * full memento unchanged once the chain would reach
+     * {@code keyframeInterval}. The ropes share every chunk the edits did not
+     * touch, so finding the changed middle costs about the size of the edits.
+     */
+    static EditorMemento delta(EditorMemento base, EditorMemento full, int keyframeInterval) {
+        if (base.chainLength + 1 >= keyframeInterval) {
+            return full;
+        }
+        Rope baseContent = base.getDocument();
+        Rope target = full.content;
+        int prefix = baseContent.commonPrefixLength(target);
+        int suffix = baseContent.commonSuffixLength(target,
+                Math.min(baseContent.length(), target.length()) - prefix);
+        return new EditorMemento(base, prefix, suffix, target.subRope(prefix, target.length() - suffix),
+                full.cursorPosition, full.selectedText);
     }
 
     // Package-private getters to restrict access to the Originator
     String getContent() {
-        return content;
+        return getDocument().toString();
+    }
+
+    Rope getDocument() {
+        if (base == null) {
+            return content;
+        }
+        Rope baseContent = base.getDocument();
+        return baseContent.subRope(0, prefixLength).concat(content)
+                .concat(baseContent.subRope(baseContent.length() - suffixLength, baseContent.length()));
     }
 
     int getCursorPosition() {
@@ -26,4 +89,23 @@ public class EditorMemento {
     String getSelectedText() {
         return selectedText;
     }
-}
\ No newline at end of file
+
+    boolean isKeyframe() {
+        return base == null;
+    }
+
+    /**
+     * This state as a keyframe, which no longer references its base. The
+     * rebuilt rope still shares unchanged chunks with the base's content.
+     */
+    EditorMemento toKeyframe() {
+        return base == null ? this : new EditorMemento(getDocument(), cursorPosition, selectedText);
+    }
+
+    /**
+     * Characters of content this memento holds itself, excluding its base.
+     */
+    int getStoredLength() {
+        return content.length() + selectedText.length();
+    }
+}
@@ -0,0 +1,46 @@
+package com.designpatterns.behavioral.memento;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+
+/**
+ * Encoding used by {@link TieredMementoStore} for mementos that leave its
+ * hot tier.
+ */
+public interface MementoCodec {
+    /** Stores bytes as they are; cheapest to decode. */
+    MementoCodec IDENTITY = new MementoCodec() {
+        @Override
+        public byte[] encode(byte[] raw) {
+            return raw;
+        }
+
+        @Override
+        public byte[] decode(ByteBuffer encoded, int rawLength) {
+            byte[] raw = new byte[rawLength];
+            encoded.get(raw);
+            return raw;
+        }
+
+        @Override
+        public String getName() {
+            return "identity";
+        }
+    };
+
+    /** Deflate tuned for speed, for large or frequently restored text. */
+    MementoCodec DEFLATE_FAST = new DeflateMementoCodec(Deflater.BEST_SPEED);
+
+    /** Deflate at its default level, trading encode time for ratio. */
+    MementoCodec DEFLATE = new DeflateMementoCodec(Deflater.DEFAULT_COMPRESSION);
+
+    byte[] encode(byte[] raw);
+
+    /**
+     * Decodes the remaining bytes of {@code encoded} back to the
+     * {@code rawLength} bytes they were encoded from.
+     */
+    byte[] decode(ByteBuffer encoded, int rawLength);
+
+    String getName();
+}
@@ -1,82 +1,164 @@
 package com.designpatterns.behavioral.memento;
 
+import com.designpatterns.util.Rope;
+
+import java.util.concurrent.locks.StampedLock;
+
 /**
  * Originator class that creates and restores from mementos
+ *
+ * Content is held in an immutable {@link Rope}. A memento simply keeps the
+ * current rope, so save and restore are O(1) and successive mementos share
+ * all the text an edit did not touch.
+ *
+ * Edits take a {@link StampedLock} write lock and bump a version counter.
+ * {@link #save()} and the getters read optimistically: they copy the three
+ * state fields and validate the stamp, falling back to a read lock only if an
+ * edit raced with them. Autosave and history capture can therefore run on
+ * other threads, see a consistent state, and never hold up the writer.
  */
 public class TextEditor {
-    private StringBuilder content;
+    private final StampedLock lock = new StampedLock();
+    private Rope content;
     private int cursorPosition;
     private String selectedText;
+    private long version;
 
     public TextEditor() {
-        this.content = new StringBuilder();
+        this.content = Rope.EMPTY;
         this.cursorPosition = 0;
         this.selectedText = "";
     }
 
     public void write(String text) {
-        if (selectedText.length() > 0) {
-            // Replace selected text
-            int start = cursorPosition - selectedText.length();
-            content.replace(start, cursorPosition, text);
-            cursorPosition = start + text.length();
-        } else {
-            // Insert at cursor position
-            content.insert(cursorPosition, text);
-            cursorPosition += text.length();
+        long stamp = lock.writeLock();
+        try {
+            if (selectedText.length() > 0) {
+                // Replace selected text
+                int start = cursorPosition - selectedText.length();
+                content = content.delete(start, cursorPosition).insert(start, text);
+                cursorPosition = start + text.length();
+            } else {
+                // Insert at cursor position
+                content = content.insert(cursorPosition, text);
+                cursorPosition += text.length();
+            }
+            selectedText = "";
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
         }
-        selectedText = "";
     }
 
     public void selectText(int start, int end) {
-        if (start >= 0 && end <= content.length() && start <= end) {
-            selectedText = content.substring(start, end);
-            cursorPosition = end;
+        long stamp = lock.writeLock();
+        try {
+            if (start >= 0 && end <= content.length() && start <= end) {
+                selectedText = content.substring(start, end);
+                cursorPosition = end;
+                version++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
         }
     }
 
     public void delete() {
-        if (selectedText.length() > 0) {
-            // Delete selected text
-            int start = cursorPosition - selectedText.length();
-            content.delete(start, cursorPosition);
-            cursorPosition = start;
-            selectedText = "";
-        } else if (cursorPosition > 0) {
-            // Delete character before cursor
-            content.deleteCharAt(--cursorPosition);
+        long stamp = lock.writeLock();
+        try {
+            if (selectedText.length() > 0) {
+                // Delete selected text
+                int start = cursorPosition - selectedText.length();
+                content = content.delete(start, cursorPosition);
+                cursorPosition = start;
+                selectedText = "";
+                version++;
+            } else if (cursorPosition > 0) {
+                // Delete character before cursor
+                content = content.delete(cursorPosition - 1, cursorPosition);
+                cursorPosition--;
+                version++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
         }
     }
 
     public void setCursorPosition(int position) {
-        if (position >= 0 && position <= content.length()) {
-            this.cursorPosition = position;
-            this.selectedText = "";
+        long stamp = lock.writeLock();
+        try {
+            if (position >= 0 && position <= content.length()) {
+                this.cursorPosition = position;
+                this.selectedText = "";
+                version++;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
         }
     }
 
     // Create a memento
     public EditorMemento save() {
-        return new EditorMemento(content.toString(), cursorPosition, selectedText);
+        long stamp = lock.tryOptimisticRead();
+        Rope savedContent = content;
+        int savedCursor = cursorPosition;
+        String savedSelection = selectedText;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                savedContent = content;
+                savedCursor = cursorPosition;
+                savedSelection = selectedText;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return new EditorMemento(savedContent, savedCursor, savedSelection);
     }
 
     // Restore from a memento
     public void restore(EditorMemento memento) {
-        this.content = new StringBuilder(memento.getContent());
-        this.cursorPosition = memento.getCursorPosition();
-        this.selectedText = memento.getSelectedText();
+        // Rebuilding a delta memento can take a while, so do it before locking
+        Rope restored = memento.getDocument();
+        long stamp = lock.writeLock();
+        try {
+            this.content = restored;
+            this.cursorPosition = memento.getCursorPosition();
+            this.selectedText = memento.getSelectedText();
+            version++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Counter bumped by every change, so an autosaver can skip unchanged
+     * states.
+     */
+    public long getVersion() {
+        long stamp = lock.tryOptimisticRead();
+        long current = version;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                current = version;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return current;
     }
 
     // Getters for testing and display
     public String getContent() {
-        return content.toString();
+        return save().getContent();
     }
 
     public int getCursorPosition() {
-        return cursorPosition;
+        return save().getCursorPosition();
     }
 
     public String getSelectedText() {
-        return selectedText;
+        return save().getSelectedText();
     }
-}
\ No newline at end of file
+}
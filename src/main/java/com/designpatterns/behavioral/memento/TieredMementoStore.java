@@ -0,0 +1,329 @@
+package com.designpatterns.behavioral.memento;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Undo stack for {@link EditorHistory} with a hot tier and an encoded tier.
+ *
+ * The newest {@code hotCapacity} mementos stay on the heap as they are. Older
+ * ones are encoded with a {@link MementoCodec} and either kept on the heap as
+ * bytes or, when the store has a spill file, appended to it and read back
+ * through a memory-mapped view of their record. Encoded mementos are only
+ * decoded when undo reaches them. Once the store holds {@code maxEntries}
+ * mementos the oldest is dropped. Space in the file is reused as undo reads
+ * records back from its end, and from the start once nothing is spilled.
+ * Dropping the oldest records leaves dead space at the front of the file;
+ * once that is at least as large as the live records, they are moved back to
+ * the start and the file is truncated, so it stays within about twice the
+ * size of the spilled history.
+ *
+ * The oldest memento on the heap is always kept as a full keyframe, so a
+ * delta never pins a memento that has been encoded or dropped.
+ *
+ * Mementos of at least {@code compressionThreshold} bytes use the
+ * compression codec and smaller ones are stored as is, since compressing a
+ * few bytes costs more than it saves.
+ */
+public class TieredMementoStore implements Closeable {
+    private static final int RECORD_HEADER = 3 * Integer.BYTES;
+    private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+
+    private final Deque<EditorMemento> hot = new ArrayDeque<>();
+    // Oldest encoded memento first
+    private final Deque<EncodedMemento> cold = new ArrayDeque<>();
+    private final int hotCapacity;
+    private final int maxEntries;
+    private final FileChannel spillFile;
+    private long writePosition;
+    private MementoCodec compressionCodec = MementoCodec.DEFLATE_FAST;
+    private int compressionThreshold;
+    private long rawBytes;
+    private long encodedBytes;
+    private long decodeCount;
+    private long decodeNanos;
+
+    /**
+     * Heap-only store that keeps up to {@code maxEntries} mementos.
+     */
+    public TieredMementoStore(int maxEntries) {
+        this(maxEntries, maxEntries);
+    }
+
+    /**
+     * Heap-only store that keeps mementos beyond the newest
+     * {@code hotCapacity} encoded.
+     */
+    public TieredMementoStore(int hotCapacity, int maxEntries) {
+        this.hotCapacity = hotCapacity;
+        this.maxEntries = maxEntries;
+        this.spillFile = null;
+        validate();
+    }
+
+    /**
+     * @param spillFile   file that receives encoded older mementos; it is
+     *                    truncated on open
+     * @param hotCapacity mementos kept unencoded on the heap
+     * @param maxEntries  mementos kept in total, the current state included
+     */
+    public TieredMementoStore(Path spillFile, int hotCapacity, int maxEntries) throws IOException {
+        this.hotCapacity = hotCapacity;
+        this.maxEntries = maxEntries;
+        validate();
+        this.spillFile = FileChannel.open(spillFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void validate() {
+        if (hotCapacity < 1 || maxEntries < hotCapacity) {
+            throw new IllegalArgumentException("Hot capacity must be at least 1 and at most maxEntries");
+        }
+    }
+
+    /**
+     * Chooses how mementos leaving the hot tier are encoded: with
+     * {@code codec} from {@code thresholdBytes} of UTF-8 text upwards, and
+     * with {@link MementoCodec#IDENTITY} below it.
+     */
+    public void setCompression(MementoCodec codec, int thresholdBytes) {
+        if (thresholdBytes < 0) {
+            throw new IllegalArgumentException("Threshold must not be negative");
+        }
+        this.compressionCodec = codec;
+        this.compressionThreshold = thresholdBytes;
+    }
+
+    void push(EditorMemento memento) {
+        hot.push(memento);
+        if (size() > maxEntries) {
+            if (cold.isEmpty()) {
+                hot.removeLast();
+                keyframeOldestHot();
+            } else {
+                cold.removeFirst();
+                compactIfSparse();
+            }
+        }
+        if (cold.isEmpty()) {
+            // Nothing left on disk, so the file can be reused from the start
+            writePosition = 0;
+        }
+        if (hot.size() > hotCapacity) {
+            cold.addLast(encode(hot.removeLast()));
+            keyframeOldestHot();
+        }
+    }
+
+    // The memento that just left the heap may be the base of the next one
+    private void keyframeOldestHot() {
+        EditorMemento oldest = hot.peekLast();
+        if (oldest != null && !oldest.isKeyframe()) {
+            hot.removeLast();
+            hot.addLast(oldest.toKeyframe());
+        }
+    }
+
+    // Moves the live records to the front of the file once the dead space before them is as large
+    private void compactIfSparse() {
+        if (spillFile == null || cold.isEmpty()) {
+            return;
+        }
+        long deadBytes = cold.peekFirst().offset;
+        if (deadBytes < MIN_COMPACTION_BYTES || deadBytes < writePosition - deadBytes) {
+            return;
+        }
+        try {
+            // Copying front to back never overwrites bytes that are still to be read
+            ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(MIN_COMPACTION_BYTES, writePosition - deadBytes));
+            long read = deadBytes;
+            long written = 0;
+            while (read < writePosition) {
+                chunk.clear().limit((int) Math.min(chunk.capacity(), writePosition - read));
+                while (chunk.hasRemaining()) {
+                    read += spillFile.read(chunk, read);
+                }
+                chunk.flip();
+                while (chunk.hasRemaining()) {
+                    written += spillFile.write(chunk, written);
+                }
+            }
+            writePosition = written;
+            spillFile.truncate(writePosition);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not compact spill file", e);
+        }
+        for (EncodedMemento encoded : cold) {
+            encoded.offset -= deadBytes;
+        }
+    }
+
+    EditorMemento pop() {
+        EditorMemento memento = peek();
+        if (memento != null) {
+            hot.pop();
+        }
+        return memento;
+    }
+
+    /**
+     * Returns the newest memento, decoding it if the hot tier has run out.
+     */
+    EditorMemento peek() {
+        if (hot.isEmpty() && !cold.isEmpty()) {
+            EncodedMemento newest = cold.removeLast();
+            hot.push(decode(newest));
+            if (newest.bytes == null) {
+                // The newest record is last in the file, so its space is reusable
+                writePosition = newest.offset;
+            }
+        }
+        return hot.peek();
+    }
+
+    int size() {
+        return hot.size() + cold.size();
+    }
+
+    // Characters held by the hot tier, for EditorHistory's memory estimate
+    long getHeapStoredLength() {
+        long characters = 0;
+        for (EditorMemento memento : hot) {
+            characters += memento.getStoredLength();
+        }
+        return characters;
+    }
+
+    void clear() {
+        hot.clear();
+        cold.clear();
+        writePosition = 0;
+    }
+
+    /**
+     * Number of mementos currently held encoded, on the heap or on disk.
+     */
+    public int getSpilledCount() {
+        return cold.size();
+    }
+
+    public int getHotCapacity() {
+        return hotCapacity;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Bytes the spill file currently occupies, or 0 without a spill file.
+     */
+    public long getSpillFileSize() throws IOException {
+        return spillFile == null ? 0 : spillFile.size();
+    }
+
+    /**
+     * Raw bytes over encoded bytes across every memento encoded so far.
+     */
+    public double getCompressionRatio() {
+        return encodedBytes == 0 ? 1.0 : (double) rawBytes / encodedBytes;
+    }
+
+    /**
+     * Mean time to read back and decode a memento on undo.
+     */
+    public long getAverageRestoreNanos() {
+        return decodeCount == 0 ? 0 : decodeNanos / decodeCount;
+    }
+
+    public long getRestoreCount() {
+        return decodeCount;
+    }
+
+    private EncodedMemento encode(EditorMemento memento) {
+        byte[] content = memento.getContent().getBytes(StandardCharsets.UTF_8);
+        byte[] selected = memento.getSelectedText().getBytes(StandardCharsets.UTF_8);
+        byte[] raw = ByteBuffer.allocate(content.length + selected.length)
+                .put(content).put(selected).array();
+        MementoCodec codec = raw.length >= compressionThreshold ? compressionCodec : MementoCodec.IDENTITY;
+        byte[] encoded = codec.encode(raw);
+        rawBytes += raw.length;
+        encodedBytes += encoded.length;
+        EncodedMemento result = new EncodedMemento(codec, memento.getCursorPosition(), content.length,
+                selected.length);
+        if (spillFile == null) {
+            result.bytes = encoded;
+            return result;
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + encoded.length);
+        record.putInt(result.cursorPosition).putInt(content.length).putInt(selected.length)
+                .put(encoded).flip();
+        try {
+            long position = writePosition;
+            while (record.hasRemaining()) {
+                position += spillFile.write(record, position);
+            }
+            result.offset = writePosition;
+            result.length = (int) (position - writePosition);
+            writePosition = position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not spill memento", e);
+        }
+        return result;
+    }
+
+    private EditorMemento decode(EncodedMemento encoded) {
+        long start = System.nanoTime();
+        ByteBuffer source;
+        if (encoded.bytes != null) {
+            source = ByteBuffer.wrap(encoded.bytes);
+        } else {
+            try {
+                source = spillFile.map(FileChannel.MapMode.READ_ONLY, encoded.offset, encoded.length)
+                        .position(RECORD_HEADER);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load spilled memento", e);
+            }
+        }
+        byte[] raw = encoded.codec.decode(source, encoded.contentLength + encoded.selectedLength);
+        EditorMemento memento = new EditorMemento(
+                new String(raw, 0, encoded.contentLength, StandardCharsets.UTF_8), encoded.cursorPosition,
+                new String(raw, encoded.contentLength, encoded.selectedLength, StandardCharsets.UTF_8));
+        decodeNanos += System.nanoTime() - start;
+        decodeCount++;
+        return memento;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spillFile != null) {
+            spillFile.close();
+        }
+    }
+
+    private static final class EncodedMemento {
+        private final MementoCodec codec;
+        private final int cursorPosition;
+        private final int contentLength;
+        private final int selectedLength;
+        // Heap copy, or the record's place in the spill file
+        private byte[] bytes;
+        private long offset;
+        private int length;
+
+        private EncodedMemento(MementoCodec codec, int cursorPosition, int contentLength, int selectedLength) {
+            this.codec = codec;
+            this.cursorPosition = cursorPosition;
+            this.contentLength = contentLength;
+            this.selectedLength = selectedLength;
+        }
+    }
+}
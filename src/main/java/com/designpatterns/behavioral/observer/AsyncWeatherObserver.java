@@ -0,0 +1,220 @@
+package com.designpatterns.behavioral.observer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorator that delivers weather updates to a wrapped observer on an
+ * executor instead of the publishing thread.
+ *
+ * Each instance owns a bounded queue of readings, so one slow display only
+ * ever delays itself. Readings are stored in a primitive ring buffer and a
+ * single drain task per observer keeps updates in publication order.
+ * Notification metrics time each delivery on the drain task, not the enqueue.
+ */
+public class AsyncWeatherObserver implements QueuedWeatherObserver {
+
+    /**
+     * What to do when a reading arrives and the observer's queue is full.
+     */
+    public enum OverflowPolicy {
+        /** Discard the oldest queued reading to make room. */
+        DROP_OLDEST,
+        /** Overwrite the newest queued reading with the incoming one. */
+        COALESCE_LATEST,
+        /** Make the publisher wait until the observer catches up. */
+        BLOCK
+    }
+
+    private static final int FIELDS = 3;
+
+    private final WeatherObserver delegate;
+    private final Executor executor;
+    private final OverflowPolicy policy;
+    private final int capacity;
+    private final double[] readings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    private int head;
+    private int size;
+    private boolean scheduled;
+    private long droppedCount;
+    private volatile NotificationMetrics metrics;
+
+    public AsyncWeatherObserver(WeatherObserver delegate, int capacity, OverflowPolicy policy) {
+        this(delegate, DefaultExecutorHolder.EXECUTOR, capacity, policy);
+    }
+
+    public AsyncWeatherObserver(WeatherObserver delegate, Executor executor, int capacity,
+            OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.delegate = delegate;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.readings = new double[capacity * FIELDS];
+    }
+
+    @Override
+    public void update(double temperature, double humidity, double pressure) {
+        boolean schedule;
+        lock.lock();
+        try {
+            if (size == capacity) {
+                switch (policy) {
+                    case DROP_OLDEST:
+                        head = (head + 1) % capacity;
+                        size--;
+                        droppedCount++;
+                        break;
+                    case COALESCE_LATEST:
+                        write((head + size - 1) % capacity, temperature, humidity, pressure);
+                        droppedCount++;
+                        return;
+                    case BLOCK:
+                        awaitNotFull();
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown overflow policy: " + policy);
+                }
+            }
+            write((head + size) % capacity, temperature, humidity, pressure);
+            size++;
+            schedule = !scheduled;
+            scheduled = true;
+        } finally {
+            lock.unlock();
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void awaitNotFull() {
+        boolean interrupted = false;
+        while (size == capacity) {
+            try {
+                notFull.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(int slot, double temperature, double humidity, double pressure) {
+        int base = slot * FIELDS;
+        readings[base] = temperature;
+        readings[base + 1] = humidity;
+        readings[base + 2] = pressure;
+    }
+
+    private void drain() {
+        boolean completed = false;
+        try {
+            while (true) {
+                double temperature;
+                double humidity;
+                double pressure;
+                lock.lock();
+                try {
+                    if (size == 0) {
+                        scheduled = false;
+                        completed = true;
+                        return;
+                    }
+                    int base = head * FIELDS;
+                    temperature = readings[base];
+                    humidity = readings[base + 1];
+                    pressure = readings[base + 2];
+                    head = (head + 1) % capacity;
+                    size--;
+                    notFull.signal();
+                } finally {
+                    lock.unlock();
+                }
+                QueuedWeatherObserver.deliver(this, metrics, delegate, temperature, humidity, pressure);
+            }
+        } finally {
+            if (!completed) {
+                // The delegate threw: hand any remaining backlog to a fresh drain task
+                boolean reschedule;
+                lock.lock();
+                try {
+                    reschedule = size > 0;
+                    scheduled = reschedule;
+                } finally {
+                    lock.unlock();
+                }
+                if (reschedule) {
+                    executor.execute(this::drain);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void bindMetrics(NotificationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public WeatherObserver getDelegate() {
+        return delegate;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return droppedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lazily created shared executor: virtual threads when the runtime offers
+     * them, otherwise a cached pool of daemon threads.
+     */
+    private static final class DefaultExecutorHolder {
+        static final Executor EXECUTOR = create();
+
+        private static Executor create() {
+            try {
+                return (ExecutorService) Executors.class
+                        .getMethod("newVirtualThreadPerTaskExecutor")
+                        .invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "weather-observer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+}
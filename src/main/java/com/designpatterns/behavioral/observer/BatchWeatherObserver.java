@@ -0,0 +1,13 @@
+package com.designpatterns.behavioral.observer;
+
+/**
+ * Observer that can consume many readings in a single callback.
+ *
+ * Readings arrive as parallel primitive arrays: reading {@code i} is
+ * {@code temperatures[i]}, {@code humidities[i]} and {@code pressures[i]} for
+ * {@code offset <= i < offset + length}. Observers that only implement
+ * {@link WeatherObserver} receive a batch as one update per reading.
+ */
+public interface BatchWeatherObserver extends WeatherObserver {
+    void updateBatch(double[] temperatures, double[] humidities, double[] pressures, int offset, int length);
+}
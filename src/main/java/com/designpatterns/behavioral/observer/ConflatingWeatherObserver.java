@@ -0,0 +1,106 @@
+package com.designpatterns.behavioral.observer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Decorator that delivers only the newest reading to a wrapped observer.
+ *
+ * Incoming readings overwrite a single "last value wins" slot and set a dirty
+ * flag; a drain task on the executor hands the latest slot contents to the
+ * delegate. However far a slow display falls behind, it holds O(1) state and
+ * never works through a stale backlog. Notification metrics time each
+ * delivery on the drain task, not the overwrite.
+ */
+public class ConflatingWeatherObserver implements QueuedWeatherObserver {
+    private final WeatherObserver delegate;
+    private final Executor executor;
+
+    // Guarded by this
+    private double temperature;
+    private double humidity;
+    private double pressure;
+    private boolean dirty;
+    private boolean scheduled;
+    private long conflatedCount;
+    private volatile NotificationMetrics metrics;
+
+    public ConflatingWeatherObserver(WeatherObserver delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public void update(double temperature, double humidity, double pressure) {
+        boolean schedule;
+        synchronized (this) {
+            if (dirty) {
+                conflatedCount++;
+            }
+            this.temperature = temperature;
+            this.humidity = humidity;
+            this.pressure = pressure;
+            dirty = true;
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        boolean completed = false;
+        try {
+            while (true) {
+                double latestTemperature;
+                double latestHumidity;
+                double latestPressure;
+                synchronized (this) {
+                    if (!dirty) {
+                        scheduled = false;
+                        completed = true;
+                        return;
+                    }
+                    latestTemperature = temperature;
+                    latestHumidity = humidity;
+                    latestPressure = pressure;
+                    dirty = false;
+                }
+                QueuedWeatherObserver.deliver(this, metrics, delegate, latestTemperature, latestHumidity,
+                        latestPressure);
+            }
+        } finally {
+            if (!completed) {
+                // The delegate threw: let the next update schedule a fresh drain
+                boolean reschedule;
+                synchronized (this) {
+                    reschedule = dirty;
+                    scheduled = reschedule;
+                }
+                if (reschedule) {
+                    executor.execute(this::drain);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void bindMetrics(NotificationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public WeatherObserver getDelegate() {
+        return delegate;
+    }
+
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Number of readings overwritten before the delegate saw them.
+     */
+    public synchronized long getConflatedCount() {
+        return conflatedCount;
+    }
+}
@@ -3,7 +3,7 @@ package com.designpatterns.behavioral.observer;
 /**
  * Concrete Observer that displays current weather conditions
  */
-public class CurrentConditionsDisplay implements WeatherObserver {
+public class CurrentConditionsDisplay implements BatchWeatherObserver {
     private double temperature;
     private double humidity;
     private double pressure;
@@ -16,6 +16,15 @@ public class CurrentConditionsDisplay implements WeatherObserver {
         display();
     }
 
+    @Override
+    public void updateBatch(double[] temperatures, double[] humidities, double[] pressures, int offset, int length) {
+        // Only the latest reading is shown
+        if (length > 0) {
+            int last = offset + length - 1;
+            update(temperatures[last], humidities[last], pressures[last]);
+        }
+    }
+
     public void display() {
         System.out.printf("Current conditions: %.1f°C temperature, %.1f%% humidity, %.1f hPa pressure%n",
                 temperature, humidity, pressure);
@@ -0,0 +1,67 @@
+package com.designpatterns.behavioral.observer;
+
+/**
+ * Fixed-size ring buffer of primitive doubles that keeps the most recent
+ * readings. Once full, each new value overwrites the oldest one, so memory
+ * stays constant however long the feed runs.
+ */
+public class DoubleRingBuffer {
+    private final double[] values;
+    private int head;
+    private int size;
+
+    public DoubleRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.values = new double[capacity];
+    }
+
+    public void add(double value) {
+        if (size < values.length) {
+            values[(head + size) % values.length] = value;
+            size++;
+        } else {
+            values[head] = value;
+            head = (head + 1) % values.length;
+        }
+    }
+
+    /**
+     * Returns the value at the given index, where 0 is the oldest value still
+     * held.
+     */
+    public double get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return values[(head + index) % values.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    public double[] toArray() {
+        double[] copy = new double[size];
+        for (int i = 0; i < size; i++) {
+            copy[i] = get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Computes statistics over the values currently in the window.
+     */
+    public RunningStatistics statistics() {
+        RunningStatistics statistics = new RunningStatistics();
+        for (int i = 0; i < size; i++) {
+            statistics.add(get(i));
+        }
+        return statistics;
+    }
+}
@@ -1,7 +1,11 @@
 package com.designpatterns.behavioral.observer;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * NewsAgency class acting as the Subject (Observable) in the Observer pattern.
@@ -13,32 +17,222 @@ import java.util.List;
  * 2. Provides methods to attach/detach observers
  * 3. Notifies all observers when state changes
  * 4. Loose coupling between subject and observers
+ *
+ * Besides broadcasting with {@link #setNews(String)}, stories can be
+ * published to a topic, optionally narrowed to one subscriber type. A routing
+ * index ensures only the interested subscribers are touched. Topic stories
+ * reach topic subscribers only, not subscribers added with attach.
+ *
+ * When backed by a {@link NewsLog}, every broadcast story is also appended to
+ * the log. Subscribers attached with an id can then disconnect and later
+ * resume from where they left off, receiving every story they missed.
+ * Delivery is at-least-once: after a crash a subscriber may see a story again.
+ * Only broadcasts are logged. Topic publishes are delivered live and are
+ * never replayed, so topic subscribers miss what was published while they
+ * were away.
+ *
+ * {@link #setNewsAsync(String)} fans a story out across a ForkJoinPool once
+ * the subscriber count reaches the parallelism threshold, and reports
+ * completion through a future.
  */
 public class NewsAgency {
-    private String news;
-    private List<NewsSubscriber> subscribers = new ArrayList<>();
+    public static final int DEFAULT_PARALLELISM_THRESHOLD = 10_000;
+    public static final int DEFAULT_CHUNK_SIZE = 1_000;
+
+    // Written under the agency's lock; volatile so getNews() sees the latest story without it
+    private volatile String news;
+    private final SubscriberRegistry<NewsSubscriber> subscribers = new SubscriberRegistry<>(NewsSubscriber[]::new);
+    private final TopicRoutingIndex topics = new TopicRoutingIndex();
+    private final NewsLog log;
+    private final Map<NewsSubscriber, String> durableSubscriberIds = new ConcurrentHashMap<>();
+    private final ForkJoinPool pool;
+    private final NotificationMetrics metrics = new NotificationMetrics();
+    private volatile int parallelismThreshold = DEFAULT_PARALLELISM_THRESHOLD;
+    private volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    public NewsAgency() {
+        this(null);
+    }
+
+    public NewsAgency(NewsLog log) {
+        this(log, ForkJoinPool.commonPool());
+    }
+
+    public NewsAgency(NewsLog log, ForkJoinPool pool) {
+        this.log = log;
+        this.pool = pool;
+    }
 
     public void attach(NewsSubscriber subscriber) {
-        if (!subscribers.contains(subscriber)) {
-            subscribers.add(subscriber);
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Attaches a durable subscriber. If the id has been seen before, every
+     * story published since it was detached is replayed first.
+     */
+    public synchronized void attach(String subscriberId, NewsSubscriber subscriber) {
+        if (log == null) {
+            throw new IllegalStateException("Durable subscriptions require a NewsLog");
+        }
+        OptionalLong resumeOffset = log.getCommittedOffset(subscriberId);
+        if (resumeOffset.isPresent()) {
+            log.replay(resumeOffset.getAsLong(), (offset, story) -> deliver(subscriber, story));
         }
+        log.commitOffset(subscriberId, log.getEndOffset());
+        durableSubscriberIds.put(subscriber, subscriberId);
+        subscribers.add(subscriber);
     }
 
-    public void detach(NewsSubscriber subscriber) {
+    /**
+     * Removes the subscriber from broadcasts and from every topic. Durable
+     * subscribers remember the current log position for their next attach.
+     */
+    public synchronized void detach(NewsSubscriber subscriber) {
         subscribers.remove(subscriber);
+        topics.unsubscribeAll(subscriber);
+        metrics.remove(subscriber);
+        String subscriberId = durableSubscriberIds.remove(subscriber);
+        if (subscriberId != null) {
+            log.commitOffset(subscriberId, log.getEndOffset());
+        }
+    }
+
+    public void subscribe(String topic, NewsSubscriber subscriber) {
+        topics.subscribe(topic, subscriber);
+    }
+
+    public void unsubscribe(String topic, NewsSubscriber subscriber) {
+        topics.unsubscribe(topic, subscriber);
     }
 
     public void notifySubscribers() {
-        for (NewsSubscriber subscriber : subscribers) {
-            subscriber.update(news);
+        for (NewsSubscriber subscriber : subscribers.snapshot()) {
+            deliver(subscriber, news);
         }
     }
 
-    public void setNews(String news) {
+    public synchronized void setNews(String news) {
+        if (log != null) {
+            log.append(news);
+        }
         this.news = news;
         notifySubscribers();
     }
 
+    /**
+     * Publishes a story without waiting for delivery. Below the parallelism
+     * threshold subscribers are notified on the calling thread and the
+     * returned future is already complete; from it onwards the subscriber
+     * array is split into chunks of at most the chunk size, delivered in
+     * parallel on the pool. Pipelined stories
+     * may reach a subscriber out of order, so wait on the previous future when
+     * ordering matters.
+     */
+    public CompletableFuture<Void> setNewsAsync(String news) {
+        NewsSubscriber[] targets;
+        synchronized (this) {
+            if (log != null) {
+                log.append(news);
+            }
+            this.news = news;
+            targets = subscribers.snapshot();
+        }
+        int threshold = parallelismThreshold;
+        if (targets.length < threshold) {
+            try {
+                deliver(targets, 0, targets.length, news);
+                return CompletableFuture.completedFuture(null);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        FanOutTask task = new FanOutTask(targets, 0, targets.length, news, chunkSize);
+        return CompletableFuture.runAsync(task::invoke, pool);
+    }
+
+    private void deliver(NewsSubscriber[] targets, int from, int to, String news) {
+        for (int i = from; i < to; i++) {
+            deliver(targets[i], news);
+        }
+    }
+
+    private void deliver(NewsSubscriber subscriber, String news) {
+        if (!metrics.isEnabled()) {
+            subscriber.update(news);
+            return;
+        }
+        ObserverMetrics subscriberMetrics = metrics.forObserver(subscriber);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            subscriber.update(news);
+            failed = false;
+        } finally {
+            subscriberMetrics.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    /**
+     * Splits the subscriber array in halves until chunks fit the chunk size.
+     */
+    private final class FanOutTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final NewsSubscriber[] targets;
+        private final int from;
+        private final int to;
+        private final String news;
+        private final int chunkSize;
+
+        FanOutTask(NewsSubscriber[] targets, int from, int to, String news, int chunkSize) {
+            this.targets = targets;
+            this.from = from;
+            this.to = to;
+            this.news = news;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                deliver(targets, from, to, news);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FanOutTask(targets, from, middle, news, chunkSize),
+                    new FanOutTask(targets, middle, to, news, chunkSize));
+        }
+    }
+
+    /**
+     * Delivers a story to every subscriber of the topic, whatever its type.
+     * Topic stories are not written to the {@link NewsLog}.
+     */
+    public void publish(String topic, String news) {
+        synchronized (this) {
+            this.news = news;
+        }
+        for (SubscriberRegistry<NewsSubscriber> registry : topics.route(topic)) {
+            for (NewsSubscriber subscriber : registry.snapshot()) {
+                deliver(subscriber, news);
+            }
+        }
+    }
+
+    /**
+     * Delivers a story only to the topic's subscribers of the given type,
+     * e.g. "MOBILE_APP".
+     */
+    public void publish(String topic, String subscriberType, String news) {
+        synchronized (this) {
+            this.news = news;
+        }
+        for (NewsSubscriber subscriber : topics.route(topic, subscriberType)) {
+            deliver(subscriber, news);
+        }
+    }
+
     public String getNews() {
         return news;
     }
@@ -46,4 +240,46 @@ public class NewsAgency {
     public int getSubscriberCount() {
         return subscribers.size();
     }
-}
\ No newline at end of file
+
+    public int getTopicSubscriberCount(String topic) {
+        return topics.countSubscribers(topic);
+    }
+
+    /**
+     * Per-subscriber notification metrics; call setEnabled(true) to start
+     * recording.
+     */
+    public NotificationMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int getParallelismThreshold() {
+        return parallelismThreshold;
+    }
+
+    /**
+     * Sets the subscriber count from which asynchronous publishing goes
+     * parallel.
+     */
+    public void setParallelismThreshold(int parallelismThreshold) {
+        if (parallelismThreshold < 1) {
+            throw new IllegalArgumentException("Parallelism threshold must be at least 1");
+        }
+        this.parallelismThreshold = parallelismThreshold;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sets the most subscribers one parallel task notifies. Smaller chunks
+     * balance slow subscribers better; larger ones cost fewer tasks.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be at least 1");
+        }
+        this.chunkSize = chunkSize;
+    }
+}
@@ -0,0 +1,246 @@
+package com.designpatterns.behavioral.observer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only, memory-mapped log of published stories.
+ *
+ * Stories are written to fixed-size segment files as UTF-8 records prefixed
+ * with their total record size. Every record has a logical offset that stays
+ * valid across segments, and readers replay sequentially straight from the
+ * mapped segments. When the active segment is full a new one is rolled, and the
+ * oldest segments beyond {@code maxSegments} are deleted. Subscribers'
+ * resume offsets are stored next to the segments so they survive restarts.
+ */
+public class NewsLog implements Closeable {
+
+    /**
+     * Receives replayed stories together with their log offsets.
+     */
+    public interface StoryConsumer {
+        void accept(long offset, String story);
+    }
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String OFFSETS_FILE = "offsets.properties";
+    private static final int HEADER_SIZE = Integer.BYTES;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("\\d{20}");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Properties offsets = new Properties();
+    private Segment active;
+
+    public NewsLog(Path directory, int segmentSize, int maxSegments) throws IOException {
+        if (segmentSize <= HEADER_SIZE || maxSegments < 1) {
+            throw new IllegalArgumentException("Segments must hold at least one record and one segment must be kept");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        loadSegments();
+        loadOffsets();
+    }
+
+    private void loadSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                String base = name.substring(0, name.length() - SEGMENT_SUFFIX.length());
+                if (!SEGMENT_NAME.matcher(base).matches()) {
+                    // Not one of ours; leave stray files alone
+                    continue;
+                }
+                long baseOffset = Long.parseLong(base);
+                segments.put(baseOffset, Segment.open(file, baseOffset, segmentSize));
+            }
+        }
+        if (segments.isEmpty()) {
+            roll(0L);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+    }
+
+    private void loadOffsets() throws IOException {
+        Path file = directory.resolve(OFFSETS_FILE);
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                offsets.load(in);
+            }
+        }
+    }
+
+    /**
+     * Appends a story and returns its offset.
+     */
+    public synchronized long append(String story) {
+        byte[] bytes = story.getBytes(StandardCharsets.UTF_8);
+        int recordSize = HEADER_SIZE + bytes.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException("Story of " + bytes.length + " bytes does not fit in a segment");
+        }
+        if (active.writePosition + recordSize > segmentSize) {
+            roll(getEndOffset());
+        }
+        int position = active.writePosition;
+        // Through ByteBuffer: MappedByteBuffer.duplicate() only exists from Java 17
+        ByteBuffer target = ((ByteBuffer) active.buffer).duplicate();
+        target.position(position + HEADER_SIZE);
+        target.put(bytes);
+        // Writing the header last makes the record visible only once complete
+        active.buffer.putInt(position, recordSize);
+        active.writePosition += recordSize;
+        return active.baseOffset + position;
+    }
+
+    private void roll(long baseOffset) {
+        Path file = directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+        try {
+            active = Segment.open(file, baseOffset, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create log segment " + file, e);
+        }
+        segments.put(baseOffset, active);
+        while (segments.size() > maxSegments) {
+            Segment expired = segments.pollFirstEntry().getValue();
+            try {
+                Files.deleteIfExists(expired.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete log segment " + expired.path, e);
+            }
+        }
+    }
+
+    /**
+     * Replays stories from {@code fromOffset} to the end of the log and returns
+     * the offset just past the last story read. Offsets that were removed by
+     * retention resume from the oldest story still held.
+     */
+    public synchronized long replay(long fromOffset, StoryConsumer consumer) {
+        long offset = Math.max(fromOffset, segments.firstKey());
+        while (true) {
+            Segment segment = segments.floorEntry(offset).getValue();
+            int position = (int) (offset - segment.baseOffset);
+            if (position < segment.writePosition) {
+                int recordSize = segment.buffer.getInt(position);
+                ByteBuffer record = ((ByteBuffer) segment.buffer).duplicate();
+                record.position(position + HEADER_SIZE).limit(position + recordSize);
+                consumer.accept(offset, StandardCharsets.UTF_8.decode(record).toString());
+                offset += recordSize;
+            } else {
+                Long next = segments.higherKey(segment.baseOffset);
+                if (next == null) {
+                    return offset;
+                }
+                offset = next;
+            }
+        }
+    }
+
+    public synchronized long getEndOffset() {
+        return active.baseOffset + active.writePosition;
+    }
+
+    public synchronized long getStartOffset() {
+        return segments.firstKey();
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Records how far a subscriber has read and persists it.
+     */
+    public synchronized void commitOffset(String subscriberId, long offset) {
+        offsets.setProperty(subscriberId, Long.toString(offset));
+        Path file = directory.resolve(OFFSETS_FILE);
+        Path temp = directory.resolve(OFFSETS_FILE + ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                offsets.store(out, "News log subscriber offsets");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store subscriber offsets", e);
+        }
+    }
+
+    public synchronized OptionalLong getCommittedOffset(String subscriberId) {
+        String offset = offsets.getProperty(subscriberId);
+        return offset != null ? OptionalLong.of(Long.parseLong(offset)) : OptionalLong.empty();
+    }
+
+    /**
+     * Forces written stories in the active segment to disk.
+     */
+    public synchronized void flush() {
+        active.buffer.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Map.Entry<Long, Segment> entry : segments.entrySet()) {
+            entry.getValue().buffer.force();
+        }
+    }
+
+    private static final class Segment {
+        private final long baseOffset;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int writePosition;
+
+        private Segment(long baseOffset, Path path, MappedByteBuffer buffer) {
+            this.baseOffset = baseOffset;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, long baseOffset, int size) throws IOException {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+            Segment segment = new Segment(baseOffset, path, buffer);
+            segment.recoverWritePosition(size);
+            return segment;
+        }
+
+        // Scan records until the first unwritten (zero) header
+        private void recoverWritePosition(int size) {
+            int position = 0;
+            while (position + HEADER_SIZE <= size) {
+                int recordSize = buffer.getInt(position);
+                if (recordSize < HEADER_SIZE || position + recordSize > size) {
+                    break;
+                }
+                position += recordSize;
+            }
+            writePosition = position;
+        }
+    }
+}
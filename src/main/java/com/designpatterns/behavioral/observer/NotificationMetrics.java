@@ -0,0 +1,130 @@
+package com.designpatterns.behavioral.observer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Per-observer notification metrics for a subject, exposed as a snapshot
+ * API and as a JMX MXBean.
+ *
+ * Metrics are off by default. Subjects check {@link #isEnabled()} before
+ * timing a callback, so the disabled path costs one volatile read and no
+ * allocation.
+ */
+public class NotificationMetrics implements NotificationMetricsMXBean {
+    private final Map<Object, ObserverMetrics> metricsByObserver = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    ObserverMetrics forObserver(Object observer) {
+        ObserverMetrics metrics = metricsByObserver.get(observer);
+        return metrics != null ? metrics
+                : metricsByObserver.computeIfAbsent(observer, key -> new ObserverMetrics(nameOf(key)));
+    }
+
+    void remove(Object observer) {
+        metricsByObserver.remove(observer);
+    }
+
+    private static String nameOf(Object observer) {
+        return observer.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(observer));
+    }
+
+    public List<ObserverMetricsSnapshot> snapshot() {
+        List<ObserverMetricsSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<Object, ObserverMetrics> entry : metricsByObserver.entrySet()) {
+            snapshots.add(entry.getValue().snapshot(queueDepthOf(entry.getKey())));
+        }
+        return snapshots;
+    }
+
+    private static int queueDepthOf(Object observer) {
+        if (observer instanceof AsyncWeatherObserver) {
+            return ((AsyncWeatherObserver) observer).getQueueDepth();
+        }
+        if (observer instanceof ConflatingWeatherObserver) {
+            return ((ConflatingWeatherObserver) observer).isDirty() ? 1 : 0;
+        }
+        return -1;
+    }
+
+    @Override
+    public List<ObserverMetricsSnapshot> getObserverMetrics() {
+        return snapshot();
+    }
+
+    @Override
+    public long getTotalInvocations() {
+        long total = 0;
+        for (ObserverMetricsSnapshot snapshot : snapshot()) {
+            total += snapshot.getInvocationCount();
+        }
+        return total;
+    }
+
+    @Override
+    public long getTotalExceptions() {
+        long total = 0;
+        for (ObserverMetricsSnapshot snapshot : snapshot()) {
+            total += snapshot.getExceptionCount();
+        }
+        return total;
+    }
+
+    /**
+     * Returns the name of the observer with the highest p99 latency, or an
+     * empty string when nothing has been recorded.
+     */
+    @Override
+    public String getSlowestObserver() {
+        ObserverMetricsSnapshot slowest = null;
+        for (ObserverMetricsSnapshot snapshot : snapshot()) {
+            if (slowest == null || snapshot.getP99LatencyNanos() > slowest.getP99LatencyNanos()) {
+                slowest = snapshot;
+            }
+        }
+        return slowest != null ? slowest.getObserverName() : "";
+    }
+
+    @Override
+    public void reset() {
+        metricsByObserver.clear();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, e.g. under
+     * {@code com.designpatterns:type=NotificationMetrics,name=weather}.
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.designpatterns:type=NotificationMetrics,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics MBean " + name, e);
+        }
+    }
+
+    public void unregisterMBean(ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister metrics MBean " + objectName, e);
+        }
+    }
+}
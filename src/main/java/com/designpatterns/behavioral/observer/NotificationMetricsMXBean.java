@@ -0,0 +1,22 @@
+package com.designpatterns.behavioral.observer;
+
+import java.util.List;
+
+/**
+ * JMX management interface for a subject's notification metrics.
+ */
+public interface NotificationMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getTotalInvocations();
+
+    long getTotalExceptions();
+
+    String getSlowestObserver();
+
+    List<ObserverMetricsSnapshot> getObserverMetrics();
+
+    void reset();
+}
@@ -0,0 +1,65 @@
+package com.designpatterns.behavioral.observer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Invocation count, exception count and latency histogram for one observer.
+ *
+ * Latencies are counted in power-of-two nanosecond buckets, so recording is a
+ * couple of atomic increments and never allocates.
+ */
+public class ObserverMetrics {
+    private static final int BUCKETS = 64;
+
+    private final String observerName;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLongArray latencyBuckets = new AtomicLongArray(BUCKETS);
+
+    ObserverMetrics(String observerName) {
+        this.observerName = observerName;
+    }
+
+    void record(long elapsedNanos, boolean failed) {
+        invocations.increment();
+        if (failed) {
+            exceptions.increment();
+        }
+        totalNanos.add(elapsedNanos);
+        latencyBuckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(1L, elapsedNanos)));
+    }
+
+    /**
+     * Estimates a latency percentile as the upper bound of the bucket holding
+     * it, so the result is within a factor of two of the true value.
+     */
+    long latencyPercentileNanos(double quantile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = latencyBuckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return i >= 62 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    ObserverMetricsSnapshot snapshot(int queueDepth) {
+        long count = invocations.sum();
+        return new ObserverMetricsSnapshot(observerName, count, exceptions.sum(),
+                count == 0 ? 0L : totalNanos.sum() / count,
+                latencyPercentileNanos(0.50), latencyPercentileNanos(0.99), queueDepth);
+    }
+}
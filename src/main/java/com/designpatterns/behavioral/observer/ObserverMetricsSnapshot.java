@@ -0,0 +1,60 @@
+package com.designpatterns.behavioral.observer;
+
+/**
+ * Point-in-time view of one observer's notification metrics.
+ * Queue depth is -1 for observers that are updated synchronously.
+ */
+public class ObserverMetricsSnapshot {
+    private final String observerName;
+    private final long invocationCount;
+    private final long exceptionCount;
+    private final long meanLatencyNanos;
+    private final long p50LatencyNanos;
+    private final long p99LatencyNanos;
+    private final int queueDepth;
+
+    public ObserverMetricsSnapshot(String observerName, long invocationCount, long exceptionCount,
+            long meanLatencyNanos, long p50LatencyNanos, long p99LatencyNanos, int queueDepth) {
+        this.observerName = observerName;
+        this.invocationCount = invocationCount;
+        this.exceptionCount = exceptionCount;
+        this.meanLatencyNanos = meanLatencyNanos;
+        this.p50LatencyNanos = p50LatencyNanos;
+        this.p99LatencyNanos = p99LatencyNanos;
+        this.queueDepth = queueDepth;
+    }
+
+    public String getObserverName() {
+        return observerName;
+    }
+
+    public long getInvocationCount() {
+        return invocationCount;
+    }
+
+    public long getExceptionCount() {
+        return exceptionCount;
+    }
+
+    public long getMeanLatencyNanos() {
+        return meanLatencyNanos;
+    }
+
+    public long getP50LatencyNanos() {
+        return p50LatencyNanos;
+    }
+
+    public long getP99LatencyNanos() {
+        return p99LatencyNanos;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Metrics[observer='%s', invocations=%d, exceptions=%d, p50=%dns, p99=%dns, queueDepth=%d]",
+                observerName, invocationCount, exceptionCount, p50LatencyNanos, p99LatencyNanos, queueDepth);
+    }
+}
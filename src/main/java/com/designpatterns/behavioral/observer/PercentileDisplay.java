@@ -0,0 +1,108 @@
+package com.designpatterns.behavioral.observer;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Concrete Observer that displays p50/p95/p99 weather percentiles over a
+ * time window.
+ *
+ * Each metric is tracked by a {@link WindowedQuantileSketch}, so memory is
+ * bounded by the window's pane count and the sketch resolution whatever the
+ * reading rate. Sketches from displays attached to different stations can be
+ * merged with {@link QuantileSketch#merge(QuantileSketch)}.
+ */
+public class PercentileDisplay implements BatchWeatherObserver {
+
+    public enum Metric {
+        TEMPERATURE(-60.0, 60.0, 0.1),
+        HUMIDITY(0.0, 100.0, 0.1),
+        PRESSURE(850.0, 1100.0, 0.1);
+
+        private final double lowest;
+        private final double highest;
+        private final double resolution;
+
+        Metric(double lowest, double highest, double resolution) {
+            this.lowest = lowest;
+            this.highest = highest;
+            this.resolution = resolution;
+        }
+
+        QuantileSketch newSketch() {
+            return new QuantileSketch(lowest, highest, resolution);
+        }
+    }
+
+    private final LongSupplier clock;
+    private final WindowedQuantileSketch[] sketches = new WindowedQuantileSketch[Metric.values().length];
+
+    public PercentileDisplay(Duration window, int panes) {
+        this(window, panes, System::currentTimeMillis);
+    }
+
+    public PercentileDisplay(Duration window, int panes, LongSupplier clock) {
+        this.clock = clock;
+        for (Metric metric : Metric.values()) {
+            sketches[metric.ordinal()] = new WindowedQuantileSketch(window.toMillis(), panes, metric.newSketch());
+        }
+    }
+
+    /**
+     * Percentiles over consecutive, non-overlapping windows.
+     */
+    public static PercentileDisplay tumbling(Duration window) {
+        return new PercentileDisplay(window, 1);
+    }
+
+    /**
+     * Percentiles over a window that advances in steps of window / panes.
+     */
+    public static PercentileDisplay sliding(Duration window, int panes) {
+        return new PercentileDisplay(window, panes);
+    }
+
+    @Override
+    public void update(double temperature, double humidity, double pressure) {
+        long now = clock.getAsLong();
+        sketches[Metric.TEMPERATURE.ordinal()].record(now, temperature);
+        sketches[Metric.HUMIDITY.ordinal()].record(now, humidity);
+        sketches[Metric.PRESSURE.ordinal()].record(now, pressure);
+    }
+
+    @Override
+    public void updateBatch(double[] temperatures, double[] humidities, double[] pressures, int offset, int length) {
+        long now = clock.getAsLong();
+        for (int i = offset; i < offset + length; i++) {
+            sketches[Metric.TEMPERATURE.ordinal()].record(now, temperatures[i]);
+            sketches[Metric.HUMIDITY.ordinal()].record(now, humidities[i]);
+            sketches[Metric.PRESSURE.ordinal()].record(now, pressures[i]);
+        }
+    }
+
+    // Not called per update: rendering merges every pane, recording does not
+    public void display() {
+        QuantileSketch temperature = getSketch(Metric.TEMPERATURE);
+        QuantileSketch humidity = getSketch(Metric.HUMIDITY);
+        QuantileSketch pressure = getSketch(Metric.PRESSURE);
+        System.out.printf("Weather Percentiles:%n" +
+                "Temperature - p50: %.1f°C, p95: %.1f°C, p99: %.1f°C%n" +
+                "Humidity - p50: %.1f%%, p95: %.1f%%, p99: %.1f%%%n" +
+                "Pressure - p50: %.1f hPa, p95: %.1f hPa, p99: %.1f hPa%n",
+                temperature.quantile(0.50), temperature.quantile(0.95), temperature.quantile(0.99),
+                humidity.quantile(0.50), humidity.quantile(0.95), humidity.quantile(0.99),
+                pressure.quantile(0.50), pressure.quantile(0.95), pressure.quantile(0.99));
+    }
+
+    public double getPercentile(Metric metric, double quantile) {
+        return getSketch(metric).quantile(quantile);
+    }
+
+    /**
+     * Returns a merged copy of the metric's current window, suitable for
+     * combining with other stations' sketches.
+     */
+    public QuantileSketch getSketch(Metric metric) {
+        return sketches[metric.ordinal()].snapshot(clock.getAsLong());
+    }
+}
@@ -0,0 +1,120 @@
+package com.designpatterns.behavioral.observer;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-resolution histogram used to estimate percentiles of a reading
+ * stream in bounded memory.
+ *
+ * Values are counted in equal-width buckets between {@code lowest} and
+ * {@code highest}; values outside that range land in the edge buckets. Memory
+ * depends only on the range and resolution, never on how many readings are
+ * recorded. Two sketches with the same layout merge by adding their bucket
+ * counts, so per-station summaries can be combined cheaply.
+ */
+public class QuantileSketch {
+    private final double lowest;
+    private final double highest;
+    private final double resolution;
+    private final long[] counts;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch(double lowest, double highest, double resolution) {
+        if (!(highest > lowest) || !(resolution > 0)) {
+            throw new IllegalArgumentException("Sketch range must be non-empty and resolution positive");
+        }
+        this.lowest = lowest;
+        this.highest = highest;
+        this.resolution = resolution;
+        this.counts = new long[(int) Math.ceil((highest - lowest) / resolution) + 1];
+    }
+
+    public void record(double value) {
+        counts[bucketOf(value)]++;
+        count++;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    private int bucketOf(double value) {
+        if (value <= lowest) {
+            return 0;
+        }
+        if (value >= highest) {
+            return counts.length - 1;
+        }
+        return (int) ((value - lowest) / resolution);
+    }
+
+    /**
+     * Adds the counts of another sketch with the same layout into this one.
+     */
+    public void merge(QuantileSketch other) {
+        if (other.lowest != lowest || other.highest != highest || other.resolution != resolution) {
+            throw new IllegalArgumentException("Cannot merge sketches with different layouts");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Estimates the value at the given quantile, accurate to within one
+     * bucket width. Returns 0.0 when the sketch is empty.
+     *
+     * @param quantile between 0.0 and 1.0, e.g. 0.95 for p95
+     */
+    public double quantile(double quantile) {
+        if (quantile < 0.0 || quantile > 1.0) {
+            throw new IllegalArgumentException("Quantile must be between 0.0 and 1.0");
+        }
+        if (count == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                double midpoint = lowest + (i + 0.5) * resolution;
+                return Math.min(max, Math.max(min, midpoint));
+            }
+        }
+        return max;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        count = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Creates an empty sketch with the same layout as this one.
+     */
+    public QuantileSketch emptyCopy() {
+        return new QuantileSketch(lowest, highest, resolution);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMin() {
+        return count == 0 ? 0.0 : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? 0.0 : max;
+    }
+}
@@ -0,0 +1,35 @@
+package com.designpatterns.behavioral.observer;
+
+/**
+ * Observer that hands readings to a worker instead of handling them in
+ * {@code update}. Timing {@code update} would only measure the enqueue, so
+ * the subject binds its metrics and the worker records the time the wrapped
+ * observer spends on each delivery.
+ */
+interface QueuedWeatherObserver extends WeatherObserver {
+    /**
+     * Sets where deliveries are recorded, or stops recording when null.
+     */
+    void bindMetrics(NotificationMetrics metrics);
+
+    /**
+     * Runs one delivery to the wrapped observer, timing it if metrics are
+     * bound and enabled.
+     */
+    static void deliver(QueuedWeatherObserver observer, NotificationMetrics metrics, WeatherObserver delegate,
+            double temperature, double humidity, double pressure) {
+        if (metrics == null || !metrics.isEnabled()) {
+            delegate.update(temperature, humidity, pressure);
+            return;
+        }
+        ObserverMetrics observerMetrics = metrics.forObserver(observer);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.update(temperature, humidity, pressure);
+            failed = false;
+        } finally {
+            observerMetrics.record(System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.designpatterns.behavioral.observer;
+
+/**
+ * Streaming aggregate of a series of readings kept in primitive fields.
+ *
+ * Each reading is folded in O(1) time and memory: count, sum, min and max
+ * are tracked directly and the variance uses Welford's online algorithm,
+ * which stays numerically stable over very long series.
+ */
+public class RunningStatistics {
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double mean;
+    private double m2;
+
+    public void add(double value) {
+        count++;
+        sum += value;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+    }
+
+    public void reset() {
+        count = 0;
+        sum = 0.0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+        mean = 0.0;
+        m2 = 0.0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    // Empty statistics report 0.0, matching the display's previous behaviour
+    public double getAverage() {
+        return count == 0 ? 0.0 : mean;
+    }
+
+    public double getMin() {
+        return count == 0 ? 0.0 : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? 0.0 : max;
+    }
+
+    /**
+     * Population variance of the readings seen so far.
+     */
+    public double getVariance() {
+        return count == 0 ? 0.0 : m2 / count;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+}
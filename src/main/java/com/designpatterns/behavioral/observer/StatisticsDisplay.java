@@ -4,53 +4,123 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Concrete Observer that displays weather statistics
+ * Concrete Observer that displays weather statistics.
+ *
+ * Lifetime statistics are streamed through {@link RunningStatistics}, so each
+ * update costs O(1) time and memory. The most recent readings are optionally
+ * kept in fixed-size ring buffers for windowed statistics.
  */
-public class StatisticsDisplay implements WeatherObserver {
-    private final List<Double> temperatures = new ArrayList<>();
-    private final List<Double> humidities = new ArrayList<>();
-    private final List<Double> pressures = new ArrayList<>();
+public class StatisticsDisplay implements BatchWeatherObserver {
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+
+    private final RunningStatistics temperatureStats = new RunningStatistics();
+    private final RunningStatistics humidityStats = new RunningStatistics();
+    private final RunningStatistics pressureStats = new RunningStatistics();
+    private final DoubleRingBuffer temperatureWindow;
+    private final DoubleRingBuffer humidityWindow;
+    private final DoubleRingBuffer pressureWindow;
+
+    public StatisticsDisplay() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize number of recent readings to keep per metric, or 0 to
+     *                   keep lifetime statistics only
+     */
+    public StatisticsDisplay(int windowSize) {
+        if (windowSize < 0) {
+            throw new IllegalArgumentException("Window size must not be negative");
+        }
+        this.temperatureWindow = windowSize > 0 ? new DoubleRingBuffer(windowSize) : null;
+        this.humidityWindow = windowSize > 0 ? new DoubleRingBuffer(windowSize) : null;
+        this.pressureWindow = windowSize > 0 ? new DoubleRingBuffer(windowSize) : null;
+    }
 
     @Override
     public void update(double temperature, double humidity, double pressure) {
-        temperatures.add(temperature);
-        humidities.add(humidity);
-        pressures.add(pressure);
+        record(temperature, humidity, pressure);
         display();
     }
 
+    @Override
+    public void updateBatch(double[] temperatures, double[] humidities, double[] pressures, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            record(temperatures[i], humidities[i], pressures[i]);
+        }
+        display();
+    }
+
+    private void record(double temperature, double humidity, double pressure) {
+        temperatureStats.add(temperature);
+        humidityStats.add(humidity);
+        pressureStats.add(pressure);
+        if (temperatureWindow != null) {
+            temperatureWindow.add(temperature);
+            humidityWindow.add(humidity);
+            pressureWindow.add(pressure);
+        }
+    }
+
     public void display() {
         System.out.printf("Weather Statistics:%n" +
                 "Temperature - Avg: %.1f°C, Min: %.1f°C, Max: %.1f°C%n" +
                 "Humidity - Avg: %.1f%%, Min: %.1f%%, Max: %.1f%%%n" +
                 "Pressure - Avg: %.1f hPa, Min: %.1f hPa, Max: %.1f hPa%n",
-                calculateAverage(temperatures), calculateMin(temperatures), calculateMax(temperatures),
-                calculateAverage(humidities), calculateMin(humidities), calculateMax(humidities),
-                calculateAverage(pressures), calculateMin(pressures), calculateMax(pressures));
+                temperatureStats.getAverage(), temperatureStats.getMin(), temperatureStats.getMax(),
+                humidityStats.getAverage(), humidityStats.getMin(), humidityStats.getMax(),
+                pressureStats.getAverage(), pressureStats.getMin(), pressureStats.getMax());
     }
 
-    private double calculateAverage(List<Double> values) {
-        return values.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+    public RunningStatistics getTemperatureStatistics() {
+        return temperatureStats;
     }
 
-    private double calculateMin(List<Double> values) {
-        return values.stream().mapToDouble(Double::doubleValue).min().orElse(0.0);
+    public RunningStatistics getHumidityStatistics() {
+        return humidityStats;
     }
 
-    private double calculateMax(List<Double> values) {
-        return values.stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
+    public RunningStatistics getPressureStatistics() {
+        return pressureStats;
     }
 
-    // Getters for testing
+    // Statistics over the recent-readings window (empty when windowing is off)
+    public RunningStatistics getWindowedTemperatureStatistics() {
+        return windowStatistics(temperatureWindow);
+    }
+
+    public RunningStatistics getWindowedHumidityStatistics() {
+        return windowStatistics(humidityWindow);
+    }
+
+    public RunningStatistics getWindowedPressureStatistics() {
+        return windowStatistics(pressureWindow);
+    }
+
+    private RunningStatistics windowStatistics(DoubleRingBuffer window) {
+        return window != null ? window.statistics() : new RunningStatistics();
+    }
+
+    // Getters for testing: the readings currently held in the window, oldest first
     public List<Double> getTemperatures() {
-        return new ArrayList<>(temperatures);
+        return toList(temperatureWindow);
     }
 
     public List<Double> getHumidities() {
-        return new ArrayList<>(humidities);
+        return toList(humidityWindow);
     }
 
     public List<Double> getPressures() {
-        return new ArrayList<>(pressures);
+        return toList(pressureWindow);
+    }
+
+    private List<Double> toList(DoubleRingBuffer window) {
+        List<Double> values = new ArrayList<>();
+        if (window != null) {
+            for (double value : window.toArray()) {
+                values.add(value);
+            }
+        }
+        return values;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,69 @@
+package com.designpatterns.behavioral.observer;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Thread-safe observer registry shared by the subjects in this package.
+ *
+ * Membership lives in a hash set, so attach/detach cost O(1) no matter how
+ * many subscribers exist. Notification reads an immutable array snapshot
+ * without taking a lock; the snapshot is rebuilt lazily after a change, so a
+ * burst of registrations costs one copy rather than one copy per call.
+ * Observers may attach or detach while a notification is running on another
+ * thread (or from inside their own callback) without a
+ * ConcurrentModificationException: the running loop keeps its snapshot.
+ */
+final class SubscriberRegistry<T> {
+    private final Set<T> members = new LinkedHashSet<>();
+    private final IntFunction<T[]> arrayFactory;
+    private volatile T[] snapshot;
+
+    SubscriberRegistry(IntFunction<T[]> arrayFactory) {
+        this.arrayFactory = arrayFactory;
+        this.snapshot = arrayFactory.apply(0);
+    }
+
+    synchronized boolean add(T member) {
+        if (!members.add(member)) {
+            return false;
+        }
+        snapshot = null;
+        return true;
+    }
+
+    synchronized boolean remove(T member) {
+        if (!members.remove(member)) {
+            return false;
+        }
+        snapshot = null;
+        return true;
+    }
+
+    synchronized boolean contains(T member) {
+        return members.contains(member);
+    }
+
+    synchronized int size() {
+        return members.size();
+    }
+
+    /**
+     * Returns the current members in registration order. The array must not
+     * be modified by callers.
+     */
+    T[] snapshot() {
+        T[] current = snapshot;
+        return current != null ? current : rebuildSnapshot();
+    }
+
+    private synchronized T[] rebuildSnapshot() {
+        T[] current = snapshot;
+        if (current == null) {
+            current = members.toArray(arrayFactory.apply(members.size()));
+            snapshot = current;
+        }
+        return current;
+    }
+}
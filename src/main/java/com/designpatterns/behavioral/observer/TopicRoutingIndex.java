@@ -0,0 +1,91 @@
+package com.designpatterns.behavioral.observer;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routing index from topic to subscriber type to subscribers.
+ *
+ * Publishing looks up one topic (and optionally one subscriber type) and
+ * iterates only the matching subscriber arrays, so the cost is proportional
+ * to the number of matches rather than the total number of subscribers.
+ * Lookups are lock-free; subscription changes are serialized.
+ */
+final class TopicRoutingIndex {
+    private final Map<String, Map<String, SubscriberRegistry<NewsSubscriber>>> routes = new ConcurrentHashMap<>();
+    // Reverse index so a subscriber can be removed from every topic at once; guarded by this
+    private final Map<NewsSubscriber, Set<String>> topicsBySubscriber = new HashMap<>();
+
+    synchronized boolean subscribe(String topic, NewsSubscriber subscriber) {
+        boolean added = routes.computeIfAbsent(topic, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(subscriber.getSubscriberType(),
+                        key -> new SubscriberRegistry<>(NewsSubscriber[]::new))
+                .add(subscriber);
+        if (added) {
+            topicsBySubscriber.computeIfAbsent(subscriber, key -> new HashSet<>()).add(topic);
+        }
+        return added;
+    }
+
+    synchronized boolean unsubscribe(String topic, NewsSubscriber subscriber) {
+        Map<String, SubscriberRegistry<NewsSubscriber>> byType = routes.get(topic);
+        if (byType == null) {
+            return false;
+        }
+        String type = subscriber.getSubscriberType();
+        SubscriberRegistry<NewsSubscriber> registry = byType.get(type);
+        if (registry == null || !registry.remove(subscriber)) {
+            return false;
+        }
+        if (registry.size() == 0) {
+            byType.remove(type);
+            if (byType.isEmpty()) {
+                routes.remove(topic);
+            }
+        }
+        Set<String> topics = topicsBySubscriber.get(subscriber);
+        topics.remove(topic);
+        if (topics.isEmpty()) {
+            topicsBySubscriber.remove(subscriber);
+        }
+        return true;
+    }
+
+    synchronized void unsubscribeAll(NewsSubscriber subscriber) {
+        Set<String> topics = topicsBySubscriber.get(subscriber);
+        if (topics != null) {
+            for (String topic : topics.toArray(new String[0])) {
+                unsubscribe(topic, subscriber);
+            }
+        }
+    }
+
+    /**
+     * Returns the per-type subscriber registries for a topic.
+     */
+    Collection<SubscriberRegistry<NewsSubscriber>> route(String topic) {
+        Map<String, SubscriberRegistry<NewsSubscriber>> byType = routes.get(topic);
+        return byType != null ? byType.values() : Set.of();
+    }
+
+    /**
+     * Returns the subscribers of one type for a topic, or an empty array.
+     */
+    NewsSubscriber[] route(String topic, String subscriberType) {
+        Map<String, SubscriberRegistry<NewsSubscriber>> byType = routes.get(topic);
+        SubscriberRegistry<NewsSubscriber> registry = byType != null ? byType.get(subscriberType) : null;
+        return registry != null ? registry.snapshot() : new NewsSubscriber[0];
+    }
+
+    int countSubscribers(String topic) {
+        int count = 0;
+        for (SubscriberRegistry<NewsSubscriber> registry : route(topic)) {
+            count += registry.size();
+        }
+        return count;
+    }
+}
@@ -1,38 +1,58 @@
 package com.designpatterns.behavioral.observer;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Concrete Subject that maintains weather data and notifies observers of
  * changes
  */
 public class WeatherStation implements WeatherSubject {
-    private final List<WeatherObserver> observers;
+    private final SubscriberRegistry<WeatherObserver> observers;
+    private final NotificationMetrics metrics = new NotificationMetrics();
     private double temperature;
     private double humidity;
     private double pressure;
 
     public WeatherStation() {
-        observers = new ArrayList<>();
+        observers = new SubscriberRegistry<>(WeatherObserver[]::new);
     }
 
     @Override
     public void registerObserver(WeatherObserver observer) {
-        if (!observers.contains(observer)) {
-            observers.add(observer);
+        observers.add(observer);
+        if (observer instanceof QueuedWeatherObserver) {
+            ((QueuedWeatherObserver) observer).bindMetrics(metrics);
         }
     }
 
     @Override
     public void removeObserver(WeatherObserver observer) {
         observers.remove(observer);
+        if (observer instanceof QueuedWeatherObserver) {
+            ((QueuedWeatherObserver) observer).bindMetrics(null);
+        }
+        metrics.remove(observer);
     }
 
     @Override
     public void notifyObservers() {
-        for (WeatherObserver observer : observers) {
+        for (WeatherObserver observer : observers.snapshot()) {
+            deliver(observer, temperature, humidity, pressure);
+        }
+    }
+
+    private void deliver(WeatherObserver observer, double temperature, double humidity, double pressure) {
+        if (!metrics.isEnabled() || observer instanceof QueuedWeatherObserver) {
+            // Queued observers time their own deliveries on the worker
             observer.update(temperature, humidity, pressure);
+            return;
+        }
+        ObserverMetrics observerMetrics = metrics.forObserver(observer);
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            observer.update(temperature, humidity, pressure);
+            failed = false;
+        } finally {
+            observerMetrics.record(System.nanoTime() - start, failed);
         }
     }
 
@@ -43,6 +63,51 @@ public class WeatherStation implements WeatherSubject {
         notifyObservers();
     }
 
+    public void setMeasurements(double[] temperatures, double[] humidities, double[] pressures) {
+        setMeasurements(temperatures, humidities, pressures, 0, temperatures.length);
+    }
+
+    /**
+     * Publishes a batch of readings held in parallel arrays. Batch-aware
+     * observers get a single callback; others get one update per reading.
+     * The station's current measurements become the last reading in the batch.
+     */
+    public void setMeasurements(double[] temperatures, double[] humidities, double[] pressures,
+            int offset, int length) {
+        if (humidities.length != temperatures.length || pressures.length != temperatures.length) {
+            throw new IllegalArgumentException("Reading arrays must have the same length");
+        }
+        if (offset < 0 || length < 0 || offset + length > temperatures.length) {
+            throw new IndexOutOfBoundsException("Batch range is outside the reading arrays");
+        }
+        if (length == 0) {
+            return;
+        }
+        int last = offset + length - 1;
+        this.temperature = temperatures[last];
+        this.humidity = humidities[last];
+        this.pressure = pressures[last];
+        for (WeatherObserver observer : observers.snapshot()) {
+            if (!(observer instanceof BatchWeatherObserver)) {
+                for (int i = offset; i <= last; i++) {
+                    deliver(observer, temperatures[i], humidities[i], pressures[i]);
+                }
+            } else if (!metrics.isEnabled()) {
+                ((BatchWeatherObserver) observer).updateBatch(temperatures, humidities, pressures, offset, length);
+            } else {
+                ObserverMetrics observerMetrics = metrics.forObserver(observer);
+                long start = System.nanoTime();
+                boolean failed = true;
+                try {
+                    ((BatchWeatherObserver) observer).updateBatch(temperatures, humidities, pressures, offset, length);
+                    failed = false;
+                } finally {
+                    observerMetrics.record(System.nanoTime() - start, failed);
+                }
+            }
+        }
+    }
+
     // Getters for weather data
     public double getTemperature() {
         return temperature;
@@ -59,4 +124,12 @@ public class WeatherStation implements WeatherSubject {
     public int getObserverCount() {
         return observers.size();
     }
+
+    /**
+     * Per-observer notification metrics; call setEnabled(true) to start
+     * recording.
+     */
+    public NotificationMetrics getMetrics() {
+        return metrics;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.designpatterns.behavioral.observer;
 
+import java.util.concurrent.Executor;
+
 /**
  * Subject interface that defines methods for managing observers
  */
@@ -9,4 +11,27 @@ public interface WeatherSubject {
     void removeObserver(WeatherObserver observer);
 
     void notifyObservers();
-}
\ No newline at end of file
+
+    /**
+     * Registers an observer that is updated on the given executor through its
+     * own bounded queue. Remove it later by passing the returned wrapper to
+     * {@link #removeObserver(WeatherObserver)}.
+     */
+    default AsyncWeatherObserver registerAsyncObserver(WeatherObserver observer, Executor executor,
+            int capacity, AsyncWeatherObserver.OverflowPolicy policy) {
+        AsyncWeatherObserver async = new AsyncWeatherObserver(observer, executor, capacity, policy);
+        registerObserver(async);
+        return async;
+    }
+
+    /**
+     * Registers an observer that only ever receives the newest reading: updates
+     * that arrive while it is busy are collapsed into one. Remove it later by
+     * passing the returned wrapper to {@link #removeObserver(WeatherObserver)}.
+     */
+    default ConflatingWeatherObserver registerConflatingObserver(WeatherObserver observer, Executor executor) {
+        ConflatingWeatherObserver conflating = new ConflatingWeatherObserver(observer, executor);
+        registerObserver(conflating);
+        return conflating;
+    }
+}
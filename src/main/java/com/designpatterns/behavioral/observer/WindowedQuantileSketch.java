@@ -0,0 +1,67 @@
+package com.designpatterns.behavioral.observer;
+
+/**
+ * Time-windowed quantile sketch built from a ring of panes.
+ *
+ * The window is split into {@code panes} equal slices, each with its own
+ * {@link QuantileSketch}. A reading goes into the pane for its timestamp and
+ * panes that fall out of the window are reset on reuse. With one pane the
+ * window is tumbling; with several it slides forward one pane at a time.
+ * Panes only ever move forward: a late reading older than the window, or
+ * older than the pane now occupying its slot, is dropped rather than
+ * evicting newer data.
+ */
+public class WindowedQuantileSketch {
+    private final long paneMillis;
+    private final QuantileSketch[] panes;
+    private final long[] paneEpochs;
+    private long latestEpoch = Long.MIN_VALUE;
+
+    public WindowedQuantileSketch(long windowMillis, int paneCount, QuantileSketch layout) {
+        if (paneCount < 1 || windowMillis < paneCount) {
+            throw new IllegalArgumentException("Window must hold at least one millisecond per pane");
+        }
+        this.paneMillis = windowMillis / paneCount;
+        this.panes = new QuantileSketch[paneCount];
+        this.paneEpochs = new long[paneCount];
+        for (int i = 0; i < paneCount; i++) {
+            panes[i] = layout.emptyCopy();
+            paneEpochs[i] = Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Records the reading, or returns false if it arrived too late to fall
+     * inside the window.
+     */
+    public boolean record(long timeMillis, double value) {
+        long epoch = Math.floorDiv(timeMillis, paneMillis);
+        int slot = (int) Math.floorMod(epoch, (long) panes.length);
+        if (epoch < paneEpochs[slot]
+                || (latestEpoch != Long.MIN_VALUE && epoch <= latestEpoch - panes.length)) {
+            return false;
+        }
+        if (epoch > paneEpochs[slot]) {
+            panes[slot].reset();
+            paneEpochs[slot] = epoch;
+        }
+        latestEpoch = Math.max(latestEpoch, epoch);
+        panes[slot].record(value);
+        return true;
+    }
+
+    /**
+     * Merges the panes still inside the window ending at {@code nowMillis}
+     * into a new sketch.
+     */
+    public QuantileSketch snapshot(long nowMillis) {
+        long currentEpoch = Math.floorDiv(nowMillis, paneMillis);
+        QuantileSketch merged = panes[0].emptyCopy();
+        for (int i = 0; i < panes.length; i++) {
+            if (paneEpochs[i] > currentEpoch - panes.length && paneEpochs[i] <= currentEpoch) {
+                merged.merge(panes[i]);
+            }
+        }
+        return merged;
+    }
+}
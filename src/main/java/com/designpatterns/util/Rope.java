@@ -0,0 +1,312 @@
+package com.designpatterns.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Immutable rope: a binary tree of string chunks used as the text buffer of
+ * the command and memento editors.
+ *
+ * Insert and delete split the tree at the edit position and rejoin it, so
+ * only the nodes along one path are copied and the rest of the document is
+ * shared with the previous version. Range extraction walks just the chunks
+ * that overlap the range. Adjacent small chunks are merged, and when the
+ * tree grows deeper than {@code MAX_DEPTH} it is rebuilt balanced, which
+ * keeps depth logarithmic in the number of chunks.
+ */
+public final class Rope {
+    private static final int MAX_LEAF = 512;
+    private static final int MAX_DEPTH = 48;
+
+    public static final Rope EMPTY = new Rope("");
+
+    // Leaves hold text; internal nodes hold two children
+    private final String text;
+    private final Rope left;
+    private final Rope right;
+    private final int length;
+    private final int depth;
+
+    private Rope(String text) {
+        this.text = text;
+        this.left = null;
+        this.right = null;
+        this.length = text.length();
+        this.depth = 0;
+    }
+
+    private Rope(Rope left, Rope right) {
+        this.text = null;
+        this.left = left;
+        this.right = right;
+        this.length = left.length + right.length;
+        this.depth = Math.max(left.depth, right.depth) + 1;
+    }
+
+    public static Rope of(String text) {
+        if (text.isEmpty()) {
+            return EMPTY;
+        }
+        if (text.length() <= MAX_LEAF) {
+            return new Rope(text);
+        }
+        List<Rope> leaves = new ArrayList<>();
+        for (int start = 0; start < text.length(); start += MAX_LEAF) {
+            leaves.add(new Rope(text.substring(start, Math.min(text.length(), start + MAX_LEAF))));
+        }
+        return buildBalanced(leaves, 0, leaves.size());
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public char charAt(int index) {
+        checkIndex(index, length - 1);
+        Rope node = this;
+        while (node.text == null) {
+            if (index < node.left.length) {
+                node = node.left;
+            } else {
+                index -= node.left.length;
+                node = node.right;
+            }
+        }
+        return node.text.charAt(index);
+    }
+
+    public Rope insert(int index, String insertion) {
+        checkIndex(index, length);
+        if (insertion.isEmpty()) {
+            return this;
+        }
+        Rope[] parts = split(index);
+        return parts[0].concat(of(insertion)).concat(parts[1]);
+    }
+
+    /**
+     * Returns a rope without the characters from {@code start} (inclusive) to
+     * {@code end} (exclusive).
+     */
+    public Rope delete(int start, int end) {
+        checkRange(start, end);
+        if (start == end) {
+            return this;
+        }
+        Rope[] head = split(start);
+        Rope[] tail = head[1].split(end - start);
+        return head[0].concat(tail[1]);
+    }
+
+    /**
+     * Returns the characters from {@code start} to {@code end} as a rope that
+     * shares chunks with this one.
+     */
+    public Rope subRope(int start, int end) {
+        checkRange(start, end);
+        return split(start)[1].split(end - start)[0];
+    }
+
+    /**
+     * Copies only the characters from {@code start} to {@code end}, without
+     * materializing the rest of the document.
+     */
+    public String substring(int start, int end) {
+        checkRange(start, end);
+        StringBuilder builder = new StringBuilder(end - start);
+        appendRange(builder, start, end);
+        return builder.toString();
+    }
+
+    public Rope concat(Rope other) {
+        if (other.length == 0) {
+            return this;
+        }
+        if (length == 0) {
+            return other;
+        }
+        if (text != null && other.text != null && length + other.length <= MAX_LEAF) {
+            return new Rope(text + other.text);
+        }
+        if (text == null && right.text != null && other.text != null
+                && right.length + other.length <= MAX_LEAF) {
+            return join(left, new Rope(right.text + other.text));
+        }
+        return join(this, other);
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Length of the longest common prefix of this rope and {@code other}.
+     * Subtrees the two ropes share at the same position are skipped without
+     * reading them, so comparing two versions of a document costs roughly
+     * the size of the edits between them.
+     */
+    public int commonPrefixLength(Rope other) {
+        return commonLength(this, other, false, Math.min(length, other.length));
+    }
+
+    /**
+     * Length of the longest common suffix of this rope and {@code other},
+     * counting at most {@code limit} characters.
+     */
+    public int commonSuffixLength(Rope other, int limit) {
+        return commonLength(this, other, true, Math.min(limit, Math.min(length, other.length)));
+    }
+
+    // Walks both ropes in lockstep, from the start or from the end
+    private static int commonLength(Rope a, Rope b, boolean fromEnd, int limit) {
+        Deque<Rope> pathA = new ArrayDeque<>();
+        Deque<Rope> pathB = new ArrayDeque<>();
+        pathA.push(a);
+        pathB.push(b);
+        // Characters already consumed from the node on top of each path
+        int skipA = 0;
+        int skipB = 0;
+        int matched = 0;
+        while (matched < limit) {
+            Rope x = pathA.peek();
+            Rope y = pathB.peek();
+            if (x == y && skipA == skipB) {
+                matched += x.length - skipA;
+                pathA.pop();
+                pathB.pop();
+                skipA = 0;
+                skipB = 0;
+            } else if (x.text == null && (y.text != null || x.length - skipA >= y.length - skipB)) {
+                skipA = expand(pathA, skipA, fromEnd);
+            } else if (y.text == null) {
+                skipB = expand(pathB, skipB, fromEnd);
+            } else {
+                int count = Math.min(x.length - skipA, y.length - skipB);
+                for (int i = 0; i < count; i++) {
+                    if (leafChar(x, skipA + i, fromEnd) != leafChar(y, skipB + i, fromEnd)) {
+                        return Math.min(limit, matched + i);
+                    }
+                }
+                matched += count;
+                skipA += count;
+                skipB += count;
+                if (skipA == x.length) {
+                    pathA.pop();
+                    skipA = 0;
+                }
+                if (skipB == y.length) {
+                    pathB.pop();
+                    skipB = 0;
+                }
+            }
+        }
+        return limit;
+    }
+
+    // Replaces the internal node on top of the path with its children, returning the new skip
+    private static int expand(Deque<Rope> path, int skip, boolean fromEnd) {
+        Rope node = path.pop();
+        Rope first = fromEnd ? node.right : node.left;
+        Rope second = fromEnd ? node.left : node.right;
+        if (skip >= first.length) {
+            path.push(second);
+            return skip - first.length;
+        }
+        path.push(second);
+        path.push(first);
+        return skip;
+    }
+
+    private static char leafChar(Rope leaf, int offset, boolean fromEnd) {
+        return leaf.text.charAt(fromEnd ? leaf.length - 1 - offset : offset);
+    }
+
+    private static Rope join(Rope left, Rope right) {
+        Rope joined = new Rope(left, right);
+        if (joined.depth <= MAX_DEPTH) {
+            return joined;
+        }
+        List<Rope> leaves = new ArrayList<>();
+        joined.collectLeaves(leaves);
+        return buildBalanced(leaves, 0, leaves.size());
+    }
+
+    private Rope[] split(int index) {
+        if (index == 0) {
+            return new Rope[] {EMPTY, this};
+        }
+        if (index == length) {
+            return new Rope[] {this, EMPTY};
+        }
+        if (text != null) {
+            return new Rope[] {new Rope(text.substring(0, index)), new Rope(text.substring(index))};
+        }
+        if (index <= left.length) {
+            Rope[] parts = left.split(index);
+            return new Rope[] {parts[0], parts[1].concat(right)};
+        }
+        Rope[] parts = right.split(index - left.length);
+        return new Rope[] {left.concat(parts[0]), parts[1]};
+    }
+
+    private void appendRange(StringBuilder builder, int start, int end) {
+        if (start >= end) {
+            return;
+        }
+        if (text != null) {
+            builder.append(text, start, end);
+            return;
+        }
+        if (start < left.length) {
+            left.appendRange(builder, start, Math.min(end, left.length));
+        }
+        if (end > left.length) {
+            right.appendRange(builder, Math.max(0, start - left.length), end - left.length);
+        }
+    }
+
+    private void collectLeaves(List<Rope> leaves) {
+        if (text != null) {
+            if (length > 0) {
+                leaves.add(this);
+            }
+        } else {
+            left.collectLeaves(leaves);
+            right.collectLeaves(leaves);
+        }
+    }
+
+    private static Rope buildBalanced(List<Rope> leaves, int from, int to) {
+        if (to - from == 0) {
+            return EMPTY;
+        }
+        if (to - from == 1) {
+            return leaves.get(from);
+        }
+        int middle = (from + to) >>> 1;
+        return new Rope(buildBalanced(leaves, from, middle), buildBalanced(leaves, middle, to));
+    }
+
+    private void checkIndex(int index, int max) {
+        if (index < 0 || index > max) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Length: " + length);
+        }
+    }
+
+    private void checkRange(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range: [" + start + ", " + end + "), Length: " + length);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return substring(0, length);
+    }
+}
@@ -2,6 +2,15 @@ package com.designpatterns.behavioral.chain;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -145,4 +154,102 @@ public class SupportHandlerTest {
         assertTrue(response.isHandled());
         assertEquals("Developer Support", response.getHandlerName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCompiledChainMatchesLinkedWalk() {
+        CompiledSupportChain compiled = CompiledSupportChain.compile(frontDesk);
+        List<Type> types = new ArrayList<>(List.of(Type.values()));
+        types.add(null);
+        List<Priority> priorities = new ArrayList<>(List.of(Priority.values()));
+        priorities.add(null);
+        for (Type type : types) {
+            for (Priority priority : priorities) {
+                for (int complexity = 1; complexity <= 10; complexity++) {
+                    SupportTicket ticket = new SupportTicket("Ticket " + complexity, priority, type, complexity);
+                    TicketResponse expected = frontDesk.handle(ticket);
+                    TicketResponse actual = compiled.handle(ticket);
+                    assertEquals(expected.isHandled(), actual.isHandled(), ticket.toString());
+                    assertEquals(expected.getHandlerName(), actual.getHandlerName(), ticket.toString());
+                    assertEquals(expected.getMessage(), actual.getMessage(), ticket.toString());
+                }
+            }
+        }
+
+        assertSame(developerSupport,
+                compiled.getResolver(new SupportTicket("Outage", Priority.CRITICAL, Type.TECHNICAL, 9)));
+        assertNull(compiled.getResolver(new SupportTicket("Unknown", Priority.HIGH, Type.GENERAL, 10)));
+        assertNull(compiled.getResolver(new SupportTicket("Untyped", Priority.LOW, null, 1)));
+        assertSame(billingSupport, compiled.getResolver(new SupportTicket("Refund", null, Type.BILLING, 8)));
+        assertSame(technicalSupport, frontDesk.nextHandler);
+    }
+
+    @Test
+    void testCompilingLeavesLiveChainServing() throws InterruptedException {
+        SupportTicket ticket = new SupportTicket("Outage", Priority.CRITICAL, Type.TECHNICAL, 9);
+        AtomicBoolean compiling = new AtomicBoolean(true);
+        AtomicInteger wrongResponses = new AtomicInteger();
+        Thread live = new Thread(() -> {
+            while (compiling.get()) {
+                if (!"Developer Support".equals(frontDesk.handle(ticket).getHandlerName())) {
+                    wrongResponses.incrementAndGet();
+                }
+            }
+        });
+        live.start();
+        for (int i = 0; i < 200; i++) {
+            CompiledSupportChain.compile(frontDesk);
+        }
+        compiling.set(false);
+        live.join();
+        assertEquals(0, wrongResponses.get());
+    }
+
+    @Test
+    void testCompileRejectsCycles() {
+        billingSupport.setNext(frontDesk);
+        assertThrows(IllegalArgumentException.class, () -> CompiledSupportChain.compile(frontDesk));
+    }
+
+    @Test
+    void testBatchTriagePartitionsByResolver() {
+        Random random = new Random(25);
+        List<SupportTicket> backlog = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            backlog.add(new SupportTicket("Ticket " + i,
+                    Priority.values()[random.nextInt(Priority.values().length)],
+                    Type.values()[random.nextInt(Type.values().length)],
+                    1 + random.nextInt(10)));
+        }
+        CompiledSupportChain compiled = CompiledSupportChain.compile(frontDesk);
+        TriageResult result = compiled.triage(backlog.stream());
+
+        assertEquals(backlog.size(), result.size());
+        int handledCount = 0;
+        for (int i = 0; i < result.size(); i += 97) {
+            TicketResponse expected = frontDesk.handle(backlog.get(i));
+            assertEquals(expected.isHandled(), result.isHandled(i));
+            assertEquals(expected.getHandlerName(), result.getHandlerName(i));
+            assertEquals(expected.getMessage(), result.getResponse(i).getMessage());
+        }
+        for (int i = 0; i < result.size(); i++) {
+            if (frontDesk.handle(backlog.get(i)).isHandled()) {
+                handledCount++;
+            }
+        }
+        assertEquals(handledCount, result.getHandledCount());
+
+        int[] escalated = result.getPartition(null);
+        assertTrue(escalated.length > 0);
+        for (int i = 1; i < escalated.length; i++) {
+            assertTrue(escalated[i - 1] < escalated[i]);
+        }
+        assertNull(result.getResolver(escalated[0]));
+
+        Map<String, Integer> partitionSizes = new ConcurrentHashMap<>();
+        result.processPartitions((resolver, tickets) -> partitionSizes.put(
+                resolver == null ? "Management Escalation" : resolver.getHandlerName(), tickets.size()));
+        assertEquals(5, partitionSizes.size());
+        assertEquals(backlog.size(), partitionSizes.values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(result.getPartition(billingSupport).length, partitionSizes.get("Billing Support"));
+    }
+}
@@ -2,6 +2,18 @@ package com.designpatterns.behavioral.command;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -127,4 +139,306 @@ public class SmartHomeControllerTest {
         });
         assertTrue(exception.getMessage().contains("Brightness level must be between"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testJournaledControllerSurvivesRestart(@TempDir Path journalDirectory) throws IOException {
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.GROUP, 8)) {
+            SmartHomeController journaled = SmartHomeController.recover(journal,
+                    List.of(livingRoomLight, kitchenLight), List.of(livingRoomThermostat));
+            journaled.executeCommand(new LightOnCommand(livingRoomLight));
+            journaled.executeCommand(new ThermostatSetCommand(livingRoomThermostat, 68));
+            journaled.checkpoint();
+            journaled.executeCommand(new LightDimCommand(kitchenLight, 40));
+            journaled.executeCommand(new ThermostatSetCommand(livingRoomThermostat, 75));
+            journaled.undoLastCommand();
+        }
+
+        Light restoredLivingRoom = new Light("Living Room");
+        Light restoredKitchen = new Light("Kitchen");
+        Thermostat restoredThermostat = new Thermostat("Living Room");
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.GROUP, 8)) {
+            SmartHomeController recovered = SmartHomeController.recover(journal,
+                    List.of(restoredLivingRoom, restoredKitchen), List.of(restoredThermostat));
+
+            assertTrue(restoredLivingRoom.isOn());
+            assertEquals(40, restoredKitchen.getBrightness());
+            assertEquals(68, restoredThermostat.getTemperature());
+            assertEquals(1, recovered.getHistorySize());
+            assertEquals("Dim Kitchen light to 40%", recovered.getLastCommandDescription());
+        }
+    }
+
+    @Test
+    void testFailedCommandIsAbortedInJournal(@TempDir Path journalDirectory) throws IOException {
+        // ALWAYS writes the doomed record before it runs, so the abort is a marker on disk
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.ALWAYS, 1)) {
+            SmartHomeController journaled = SmartHomeController.recover(journal,
+                    List.of(livingRoomLight), List.of(livingRoomThermostat));
+            journaled.executeCommand(new LightDimCommand(livingRoomLight, 40));
+            assertThrows(IllegalArgumentException.class,
+                    () -> journaled.executeCommand(new ThermostatSetCommand(livingRoomThermostat, 90)));
+            journaled.executeCommand(new ThermostatSetCommand(livingRoomThermostat, 65));
+            assertThrows(IllegalArgumentException.class,
+                    () -> journaled.executeCommand(new LightDimCommand(livingRoomLight, 150)));
+        }
+
+        Light restoredLight = new Light("Living Room");
+        Thermostat restoredThermostat = new Thermostat("Living Room");
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.ALWAYS, 1)) {
+            SmartHomeController recovered = SmartHomeController.recover(journal,
+                    List.of(restoredLight), List.of(restoredThermostat));
+            assertEquals(40, restoredLight.getBrightness());
+            assertEquals(65, restoredThermostat.getTemperature());
+            assertEquals(2, recovered.getHistorySize());
+        }
+    }
+
+    @Test
+    void testJournaledControllerRejectsUnknownDevices(@TempDir Path journalDirectory) throws IOException {
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.NEVER, 8)) {
+            SmartHomeController journaled = SmartHomeController.recover(journal, List.of(livingRoomLight), List.of());
+            assertThrows(IllegalArgumentException.class,
+                    () -> journaled.executeCommand(new LightOnCommand(kitchenLight)));
+            assertFalse(kitchenLight.isOn());
+        }
+    }
+
+    @Test
+    void testAsyncCommandsKeepPerDeviceOrder() {
+        try (CommandScheduler scheduler = new CommandScheduler(4)) {
+            SmartHomeController async = new SmartHomeController(scheduler);
+            List<Light> lights = new ArrayList<>();
+            List<CompletableFuture<LightDimCommand>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                Light light = new Light("Room " + i);
+                lights.add(light);
+                for (int level = 10; level <= 90; level += 10) {
+                    futures.add(async.executeCommandAsync(new LightDimCommand(light, level)));
+                }
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+            for (Light light : lights) {
+                assertEquals(90, light.getBrightness());
+            }
+            assertEquals(16 * 9, async.getHistorySize());
+        }
+    }
+
+    @Test
+    void testAsyncCommandsPipelineAndReportFailures() {
+        try (CommandScheduler scheduler = new CommandScheduler(2)) {
+            SmartHomeController async = new SmartHomeController(scheduler);
+            async.executeCommandAsync(new LightOnCommand(livingRoomLight))
+                    .thenCompose(done -> async.executeCommandAsync(new LightDimCommand(livingRoomLight, 30)))
+                    .join();
+            assertEquals(30, livingRoomLight.getBrightness());
+
+            CompletableFuture<LightDimCommand> failed = async.executeCommandAsync(new LightDimCommand(kitchenLight, 150));
+            CompletionException exception = assertThrows(CompletionException.class, failed::join);
+            assertTrue(exception.getCause() instanceof IllegalArgumentException);
+            assertEquals(2, async.getHistorySize());
+        }
+        assertThrows(IllegalStateException.class,
+                () -> controller.executeCommandAsync(new LightOnCommand(kitchenLight)));
+    }
+
+    @Test
+    void testUndoRunsOnReceiverStripe() {
+        List<String> undoThreads = new ArrayList<>();
+        Command recording = new Command() {
+            @Override
+            public void execute() {
+                livingRoomLight.turnOn();
+            }
+
+            @Override
+            public void undo() {
+                undoThreads.add(Thread.currentThread().getName());
+                livingRoomLight.turnOff();
+            }
+
+            @Override
+            public String getDescription() {
+                return "Recording light switch";
+            }
+
+            @Override
+            public Object getReceiver() {
+                return livingRoomLight;
+            }
+        };
+        try (CommandScheduler scheduler = new CommandScheduler(2)) {
+            SmartHomeController async = new SmartHomeController(scheduler);
+            async.executeCommandAsync(recording).join();
+            async.undoLastCommand();
+            assertFalse(livingRoomLight.isOn());
+            assertEquals(1, undoThreads.size());
+            assertTrue(undoThreads.get(0).startsWith("command-stripe-"));
+        }
+    }
+
+    @Test
+    void testSyncAndAsyncCommandsOnOneDeviceNeverOverlap() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        List<Integer> applied = Collections.synchronizedList(new ArrayList<>());
+        class ExclusiveDim extends LightDimCommand {
+            private final int level;
+
+            ExclusiveDim(int level) {
+                super(livingRoomLight, level);
+                this.level = level;
+            }
+
+            @Override
+            public void execute() {
+                if (running.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                try {
+                    Thread.yield();
+                    super.execute();
+                    applied.add(level);
+                } finally {
+                    running.decrementAndGet();
+                }
+            }
+        }
+        try (CommandScheduler scheduler = new CommandScheduler(2)) {
+            SmartHomeController mixed = new SmartHomeController(scheduler);
+            List<CompletableFuture<ExclusiveDim>> queued = new ArrayList<>();
+            for (int round = 0; round < 50; round++) {
+                queued.add(mixed.executeCommandAsync(new ExclusiveDim(1 + round % 50)));
+                queued.add(mixed.executeCommandAsync(new ExclusiveDim(51 + round % 49)));
+                mixed.executeCommand(new ExclusiveDim(round));
+                // The synchronous command ran after both queued ones for the same device
+                assertEquals(round, livingRoomLight.getBrightness());
+            }
+            CompletableFuture.allOf(queued.toArray(new CompletableFuture[0])).join();
+            assertEquals(150, mixed.getHistorySize());
+            assertThrows(IllegalArgumentException.class, () -> mixed.executeCommand(new ExclusiveDim(150)));
+        }
+        assertEquals(0, overlaps.get());
+        assertEquals(150, applied.size());
+    }
+
+    @Test
+    void testRecoveredControllerUsesScheduler(@TempDir Path journalDirectory) throws IOException {
+        try (CommandScheduler scheduler = new CommandScheduler(2);
+                CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.NEVER, 8)) {
+            SmartHomeController journaled = SmartHomeController.recover(journal,
+                    List.of(livingRoomLight), List.of(), scheduler);
+            journaled.executeCommandAsync(new LightDimCommand(livingRoomLight, 55)).join();
+            journaled.undoLastCommand();
+            assertEquals(0, livingRoomLight.getBrightness());
+            assertEquals(0, journaled.getHistorySize());
+        }
+    }
+
+    @Test
+    void testMacroCommandIsOneHistoryEntry() {
+        List<Light> lights = new ArrayList<>();
+        List<Thermostat> thermostats = new ArrayList<>();
+        List<Command> scene = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Light light = new Light("Light " + i);
+            lights.add(light);
+            scene.add(new LightOnCommand(light));
+        }
+        for (int i = 0; i < 40; i++) {
+            Thermostat thermostat = new Thermostat("Zone " + i);
+            thermostats.add(thermostat);
+            scene.add(new ThermostatSetCommand(thermostat, 70));
+        }
+        MacroCommand macro = new MacroCommand("Evening", scene);
+        controller.executeCommand(macro);
+
+        assertEquals(1, controller.getHistorySize());
+        assertEquals("Evening (240 commands)", controller.getLastCommandDescription());
+        assertEquals(240, macro.getSucceededCount());
+        assertTrue(macro.getLastExecutionNanos() > 0);
+        assertTrue(lights.stream().allMatch(Light::isOn));
+        assertTrue(thermostats.stream().allMatch(thermostat -> thermostat.getTemperature() == 70));
+
+        controller.undoLastCommand();
+        assertTrue(lights.stream().noneMatch(Light::isOn));
+        assertEquals(0, controller.getHistorySize());
+    }
+
+    @Test
+    void testFailedMacroRollsBackAndThrows() {
+        kitchenLight.dim(20);
+        MacroCommand macro = new MacroCommand("Partial", List.of(
+                new LightOnCommand(livingRoomLight),
+                new LightDimCommand(kitchenLight, 60),
+                new LightDimCommand(kitchenLight, 150),
+                new LightDimCommand(kitchenLight, 80),
+                new ThermostatSetCommand(livingRoomThermostat, 65)));
+        assertThrows(IllegalArgumentException.class, () -> controller.executeCommand(macro));
+
+        // The children that succeeded were undone, so nothing changed
+        assertFalse(livingRoomLight.isOn());
+        assertEquals(20, kitchenLight.getBrightness());
+        assertEquals(72, livingRoomThermostat.getTemperature());
+        assertEquals(0, macro.getSucceededCount());
+        assertEquals(1, macro.getFailures().size());
+        assertEquals(0, controller.getHistorySize());
+    }
+
+    @Test
+    void testMacroRunsChildrenOnTheirStripes() {
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        List<Command> scene = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Light light = new Light("Room " + i);
+            scene.add(new LightOnCommand(light) {
+                @Override
+                public void execute() {
+                    threads.add(Thread.currentThread().getName());
+                    super.execute();
+                }
+            });
+        }
+        try (CommandScheduler scheduler = new CommandScheduler(2)) {
+            SmartHomeController async = new SmartHomeController(scheduler);
+            MacroCommand macro = new MacroCommand("Lights", scene, scheduler);
+            async.executeCommandAsync(macro).join();
+            assertEquals(8, macro.getSucceededCount());
+
+            // Commands still in flight must not deadlock a synchronous scene on the same stripes
+            List<CompletableFuture<LightDimCommand>> inFlight = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                inFlight.add(async.executeCommandAsync(new LightDimCommand(new Light("Hall " + i), 50)));
+            }
+            assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> async.executeCommand(new MacroCommand("Again", scene, scheduler)));
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+            assertEquals(66, async.getHistorySize());
+        }
+        assertEquals(16, threads.size());
+        assertTrue(threads.stream().allMatch(name -> name.startsWith("command-stripe-")));
+    }
+
+    @Test
+    void testJournaledMacroSurvivesRestart(@TempDir Path journalDirectory) throws IOException {
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.NEVER, 8)) {
+            SmartHomeController journaled = SmartHomeController.recover(journal,
+                    List.of(livingRoomLight, kitchenLight), List.of(livingRoomThermostat));
+            journaled.executeCommand(new MacroCommand("Morning", List.of(
+                    new LightDimCommand(kitchenLight, 70),
+                    new ThermostatSetCommand(livingRoomThermostat, 68))));
+        }
+
+        Light restoredKitchen = new Light("Kitchen");
+        Thermostat restoredThermostat = new Thermostat("Living Room");
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.NEVER, 8)) {
+            SmartHomeController recovered = SmartHomeController.recover(journal,
+                    List.of(new Light("Living Room"), restoredKitchen), List.of(restoredThermostat));
+
+            assertEquals(70, restoredKitchen.getBrightness());
+            assertEquals(68, restoredThermostat.getTemperature());
+            assertEquals("Morning (2 commands)", recovered.getLastCommandDescription());
+        }
+    }
+}
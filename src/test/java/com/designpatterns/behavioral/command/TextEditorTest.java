@@ -2,6 +2,19 @@ package com.designpatterns.behavioral.command;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TextEditorTest {
@@ -98,4 +111,428 @@ public class TextEditorTest {
         assertTrue(commandManager.canUndo());
         assertFalse(commandManager.canRedo());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testEditsNearStartOfLargeDocument() {
+        String body = "x".repeat(2_000_000);
+        commandManager.executeCommand(new InsertTextCommand(editor, body));
+        editor.moveCursor(0);
+        commandManager.executeCommand(new InsertTextCommand(editor, "Title\n"));
+        commandManager.executeCommand(new DeleteTextCommand(editor, 1));
+
+        assertEquals(2_000_005, editor.getLength());
+        assertEquals("Titlex", editor.getText(0, 6));
+        assertEquals(5, editor.getCursorPosition());
+
+        commandManager.undo();
+        commandManager.undo();
+        assertEquals("xxx", editor.getText(0, 3));
+        assertEquals(2_000_000, editor.getLength());
+    }
+
+    @Test
+    void testHistoryBoundedByEntryCount() {
+        CommandManager bounded = new CommandManager(3, Long.MAX_VALUE);
+        for (String word : new String[] {"one ", "two ", "three ", "four ", "five "}) {
+            bounded.executeCommand(new InsertTextCommand(editor, word));
+        }
+
+        // Only the three newest commands remain undoable
+        assertEquals(3, bounded.getHistorySize());
+        String history = bounded.getUndoHistory();
+        assertFalse(history.contains("'one '"));
+        assertTrue(history.indexOf("'three '") < history.indexOf("'five '"));
+
+        while (bounded.canUndo()) {
+            bounded.undo();
+        }
+        assertEquals("one two ", editor.getContent());
+    }
+
+    @Test
+    void testHistoryBoundedByMemory() {
+        long limit = 3 * (EditorCommand.BASE_SIZE_BYTES + 2 * 1000);
+        CommandManager bounded = new CommandManager(Integer.MAX_VALUE, limit);
+        String block = "a".repeat(1000);
+        for (int i = 0; i < 10; i++) {
+            bounded.executeCommand(new InsertTextCommand(editor, block));
+            assertTrue(bounded.getHistoryMemoryUsage() <= limit);
+        }
+        assertEquals(3, bounded.getHistorySize());
+        assertEquals(limit, bounded.getHistoryMemoryUsage());
+
+        // Undo and redo move commands between stacks without changing usage
+        bounded.undo();
+        assertEquals(limit, bounded.getHistoryMemoryUsage());
+
+        // A new command clears the redo history and its accounted bytes
+        bounded.executeCommand(new DeleteTextCommand(editor, 10));
+        assertEquals(2 * (EditorCommand.BASE_SIZE_BYTES + 2000) + EditorCommand.BASE_SIZE_BYTES + 20,
+                bounded.getHistoryMemoryUsage());
+    }
+
+    @Test
+    void testCoalescingTypedCharacters() {
+        commandManager.setCoalescing(true);
+        for (char c : "Hello".toCharArray()) {
+            commandManager.executeCommand(new InsertTextCommand(editor, String.valueOf(c)));
+        }
+        assertEquals(1, commandManager.getHistorySize());
+        assertTrue(commandManager.getUndoHistory().contains("Insert 'Hello'"));
+
+        // Backspaces coalesce into one delete
+        commandManager.executeCommand(new DeleteTextCommand(editor, 1));
+        commandManager.executeCommand(new DeleteTextCommand(editor, 1));
+        assertEquals("Hel", editor.getContent());
+        assertEquals(2, commandManager.getHistorySize());
+
+        commandManager.undo();
+        assertEquals("Hello", editor.getContent());
+        commandManager.undo();
+        assertEquals("", editor.getContent());
+
+        commandManager.redo();
+        commandManager.redo();
+        assertEquals("Hel", editor.getContent());
+    }
+
+    @Test
+    void testCoalescingStopsAtNonContiguousEdits() {
+        commandManager.setCoalescing(true);
+        commandManager.executeCommand(new InsertTextCommand(editor, "World"));
+        editor.moveCursor(0);
+        commandManager.executeCommand(new InsertTextCommand(editor, "Hello "));
+        assertEquals(2, commandManager.getHistorySize());
+
+        // After an undo, new typing starts a fresh entry and replaces the redo history
+        commandManager.undo();
+        commandManager.executeCommand(new InsertTextCommand(editor, "Hi "));
+        commandManager.executeCommand(new InsertTextCommand(editor, "there "));
+        assertEquals("Hi there World", editor.getContent());
+        assertEquals(2, commandManager.getHistorySize());
+        assertTrue(commandManager.getUndoHistory().contains("Insert 'Hi there '"));
+    }
+
+    @Test
+    void testBatchIsOneUndoStep() {
+        commandManager.executeBatch(List.of(
+                new InsertTextCommand(editor, "Hello"),
+                new InsertTextCommand(editor, " World"),
+                new DeleteTextCommand(editor, 6)));
+        assertEquals("Hello", editor.getContent());
+        assertEquals(1, commandManager.getHistorySize());
+        assertTrue(commandManager.getUndoHistory().contains("Batch of 3 commands"));
+
+        commandManager.undo();
+        assertEquals("", editor.getContent());
+        commandManager.redo();
+        assertEquals("Hello", editor.getContent());
+    }
+
+    @Test
+    void testFailedBatchRollsBack() {
+        commandManager.executeCommand(new InsertTextCommand(editor, "Keep"));
+        EditorCommand failing = new EditorCommand() {
+            @Override
+            public void execute() {
+                throw new IllegalStateException("Disk full");
+            }
+
+            @Override
+            public void undo() {
+            }
+
+            @Override
+            public String getDescription() {
+                return "Failing command";
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> commandManager.executeBatch(List.of(
+                new InsertTextCommand(editor, " this"), failing)));
+        assertEquals("Keep", editor.getContent());
+        assertEquals(1, commandManager.getHistorySize());
+    }
+
+    @Test
+    void testJournalRecoversEditorAndHistory(@TempDir Path journalDirectory) throws IOException {
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.GROUP, 4)) {
+            CommandManager journaled = CommandManager.recover(editor, journal);
+            journaled.executeCommand(new InsertTextCommand(editor, "Hello"));
+            journaled.executeCommand(new InsertTextCommand(editor, " World"));
+            editor.moveCursor(5);
+            journaled.executeCommand(new DeleteTextCommand(editor, 5));
+            journaled.undo();
+            journaled.executeBatch(List.of(new InsertTextCommand(editor, "!"), new InsertTextCommand(editor, "?")));
+        }
+
+        TextEditor restored = new TextEditor();
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.GROUP, 4)) {
+            CommandManager recovered = CommandManager.recover(restored, journal);
+            assertEquals("Hello!? World", restored.getContent());
+            assertEquals(7, restored.getCursorPosition());
+
+            // History came back too
+            assertEquals(3, recovered.getHistorySize());
+            recovered.undo();
+            assertEquals("Hello World", restored.getContent());
+        }
+    }
+
+    @Test
+    void testJournalCheckpointCompactsSegments(@TempDir Path journalDirectory) throws IOException {
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.ALWAYS, 1)) {
+            CommandManager journaled = CommandManager.recover(editor, journal);
+            journaled.setCoalescing(true);
+            journaled.executeCommand(new InsertTextCommand(editor, "Draft"));
+            journaled.checkpoint();
+            assertFalse(journaled.canUndo());
+            journaled.executeCommand(new InsertTextCommand(editor, " one"));
+            journaled.executeCommand(new InsertTextCommand(editor, " two"));
+            assertEquals(1, journal.getSegmentCount());
+        }
+
+        // Simulate a crash that tore the last record
+        try (var files = Files.list(journalDirectory)) {
+            Path segment = files.filter(file -> file.getFileName().toString().startsWith("journal-"))
+                    .findFirst().orElseThrow();
+            Files.write(segment, new byte[] {0, 0, 0, 42, 1}, StandardOpenOption.APPEND);
+        }
+
+        TextEditor restored = new TextEditor();
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.NEVER, 16)) {
+            CommandManager recovered = CommandManager.recover(restored, journal);
+            assertEquals("Draft one two", restored.getContent());
+            // Coalescing survived the snapshot, so both inserts are one entry
+            assertTrue(recovered.isCoalescing());
+            assertEquals(1, recovered.getHistorySize());
+        }
+    }
+
+    @Test
+    void testGroupJournalFlushesPartialGroupOnTimer(@TempDir Path journalDirectory)
+            throws IOException, InterruptedException {
+        try (CommandJournal journal = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.GROUP, 64, 10)) {
+            CommandManager journaled = CommandManager.recover(editor, journal);
+            journaled.executeCommand(new InsertTextCommand(editor, "Saved by the timer"));
+
+            // Far short of a full group, yet the record reaches the segment without a flush call
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (journal.getSegmentCount() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            TextEditor restored = new TextEditor();
+            try (CommandJournal reader = new CommandJournal(journalDirectory, CommandJournal.FsyncPolicy.NEVER, 1)) {
+                CommandManager.recover(restored, reader);
+            }
+            assertEquals("Saved by the timer", restored.getContent());
+        }
+    }
+
+    @Test
+    void testMpscQueueRoundsCapacityAndRejectsWhenFull() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(3);
+        assertEquals(4, queue.capacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(4));
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void testCommandApplierSerializesConcurrentProducers() throws InterruptedException {
+        for (CommandApplier.WaitStrategy strategy : CommandApplier.WaitStrategy.values()) {
+            TextEditor shared = new TextEditor();
+            CommandManager manager = new CommandManager();
+            CommandApplier applier = new CommandApplier(manager, 64, strategy);
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                String letter = String.valueOf((char) ('a' + p));
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        EditorCommand command = new InsertTextCommand(shared, letter);
+                        while (!applier.submit(command)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            // The queue may still be full of the producers' inserts
+            while (!applier.submitUndo()) {
+                Thread.onSpinWait();
+            }
+            applier.close();
+
+            assertEquals(999, shared.getLength(), strategy.name());
+            assertEquals(1001, applier.getAppliedCount());
+            assertEquals(1000, manager.getHistorySize());
+            assertTrue(manager.canRedo());
+            assertFalse(applier.submit(new InsertTextCommand(shared, "late")));
+        }
+    }
+
+    @Test
+    void testTextOperationTransformConverges() {
+        TextOperation delete = TextOperation.delete(1, 2, 4);
+        TextOperation insideInsert = TextOperation.insert(2, 4, "xy");
+        TextOperation tiedInsert = TextOperation.insert(3, 2, "zz");
+        for (TextOperation[] pair : new TextOperation[][] {
+                {delete, insideInsert}, {delete, tiedInsert}, {insideInsert, tiedInsert},
+                {delete, TextOperation.delete(2, 4, 5)}}) {
+            TextEditor first = new TextEditor();
+            first.insertText("0123456789");
+            TextEditor second = new TextEditor();
+            second.insertText("0123456789");
+
+            pair[0].applyTo(first);
+            TextOperation.transform(pair[1], pair[0]).applyTo(first);
+            pair[1].applyTo(second);
+            TextOperation.transform(pair[0], pair[1]).applyTo(second);
+            assertEquals(first.getContent(), second.getContent(), pair[0] + " / " + pair[1]);
+        }
+    }
+
+    @Test
+    void testTextOperationCodecIsCompact() {
+        TextOperation keystroke = TextOperation.insert(7, 100, "a");
+        byte[] message = TextOperationCodec.encode(300, keystroke);
+        assertEquals(7, message.length);
+
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        assertEquals(300, TextOperationCodec.readRevision(buffer));
+        assertEquals(keystroke, TextOperationCodec.readOperation(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void testInsertInsideConcurrentDeleteIsDropped() {
+        TextOperation delete = TextOperation.delete(1, 2, 4);
+        TextOperation insideInsert = TextOperation.insert(2, 4, "xy");
+        assertTrue(TextOperation.transform(insideInsert, delete).isNoOp());
+        assertEquals(6, TextOperation.transform(delete, insideInsert).getDeletedLength());
+
+        TextEditor replica = new TextEditor();
+        replica.insertText("0123456789");
+        insideInsert.applyTo(replica);
+        TextOperation.transform(delete, insideInsert).applyTo(replica);
+        assertEquals("016789", replica.getContent());
+    }
+
+    @Test
+    void testTextOperationCodecRejectsOversizedInsert() {
+        byte[] message = TextOperationCodec.encode(1, TextOperation.insert(1, 0, "abc"));
+        // Claim a far longer insert than the message carries
+        message[message.length - 4] = (byte) 0x7F;
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        TextOperationCodec.readRevision(buffer);
+        assertThrows(IllegalArgumentException.class, () -> TextOperationCodec.readOperation(buffer));
+    }
+
+    @Test
+    void testTextOperationCodecRejectsNegativeVarints() {
+        byte[] negative = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+        for (int field = 0; field < 3; field++) {
+            // kind, site id, position, length; one of the three varints decodes to -1
+            ByteBuffer message = ByteBuffer.allocate(16).put((byte) 1);
+            for (int i = 0; i < 3; i++) {
+                if (i == field) {
+                    message.put(negative);
+                } else {
+                    message.put((byte) 1);
+                }
+            }
+            message.put((byte) 'a').flip();
+            assertThrows(IllegalArgumentException.class, () -> TextOperationCodec.readOperation(message));
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> TextOperationCodec.readRevision(ByteBuffer.wrap(negative)));
+    }
+
+    @Test
+    void testCollaborationReplicasConvergeUnderInterleaving() {
+        CollaborationServer server = new CollaborationServer(new TextEditor());
+        int sites = 3;
+        List<TextEditor> editors = new ArrayList<>();
+        List<CollaborationClient> clients = new ArrayList<>();
+        List<Deque<byte[]>> toServer = new ArrayList<>();
+        List<Deque<byte[]>> toClient = new ArrayList<>();
+        for (int site = 0; site < sites; site++) {
+            Deque<byte[]> outbox = new ArrayDeque<>();
+            toServer.add(outbox);
+            toClient.add(new ArrayDeque<>());
+            TextEditor replica = new TextEditor();
+            editors.add(replica);
+            clients.add(new CollaborationClient(site, replica, outbox::add));
+        }
+
+        Random random = new Random(18);
+        for (int step = 0; step < 6000; step++) {
+            int site = random.nextInt(sites);
+            int action = random.nextInt(3);
+            if (action == 0) {
+                TextEditor replica = editors.get(site);
+                replica.moveCursor(random.nextInt(replica.getLength() + 1));
+                clients.get(site).execute(random.nextInt(3) == 0
+                        ? new DeleteTextCommand(replica, 1 + random.nextInt(4))
+                        : new InsertTextCommand(replica, String.valueOf((char) ('a' + site))));
+            } else if (action == 1 && !toServer.get(site).isEmpty()) {
+                byte[] broadcast = server.receive(toServer.get(site).poll());
+                for (Deque<byte[]> inbox : toClient) {
+                    inbox.add(broadcast);
+                }
+            } else if (!toClient.get(site).isEmpty()) {
+                clients.get(site).receive(toClient.get(site).poll());
+            }
+        }
+        boolean delivered = true;
+        while (delivered) {
+            delivered = false;
+            for (int site = 0; site < sites; site++) {
+                if (!toServer.get(site).isEmpty()) {
+                    byte[] broadcast = server.receive(toServer.get(site).poll());
+                    for (Deque<byte[]> inbox : toClient) {
+                        inbox.add(broadcast);
+                    }
+                    delivered = true;
+                }
+                if (!toClient.get(site).isEmpty()) {
+                    clients.get(site).receive(toClient.get(site).poll());
+                    delivered = true;
+                }
+            }
+        }
+
+        assertTrue(server.getRevision() > 1000);
+        for (int site = 0; site < sites; site++) {
+            assertEquals(0, clients.get(site).getPendingCount());
+            assertEquals(server.getRevision(), clients.get(site).getRevision());
+            assertEquals(server.getContent(), editors.get(site).getContent());
+        }
+    }
+
+    @Test
+    void testCoalescingAfterOversizedEntryIsEvicted() {
+        CommandManager tiny = new CommandManager(10, 70);
+        tiny.setCoalescing(true);
+        tiny.executeCommand(new InsertTextCommand(editor, "hello"));
+        assertEquals(0, tiny.getHistorySize());
+
+        tiny.executeCommand(new InsertTextCommand(editor, "x"));
+        assertEquals("hellox", editor.getContent());
+        assertEquals(1, tiny.getHistorySize());
+        tiny.undo();
+        assertEquals("hello", editor.getContent());
+    }
+}
@@ -2,6 +2,14 @@ package com.designpatterns.behavioral.memento;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TextEditorTest {
@@ -139,4 +147,262 @@ public class TextEditorTest {
         assertEquals("", editor.getContent());
         assertEquals(0, editor.getCursorPosition());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDeltaHistoryMatchesFullHistory() {
+        TextEditor deltaEditor = new TextEditor();
+        EditorHistory deltaHistory = new EditorHistory(deltaEditor, 8);
+        Random random = new Random(19);
+        for (int step = 0; step < 400; step++) {
+            int action = random.nextInt(5);
+            if (action == 0) {
+                assertEquals(history.undo(), deltaHistory.undo());
+            } else if (action == 1) {
+                assertEquals(history.redo(), deltaHistory.redo());
+            } else {
+                int length = editor.getContent().length();
+                int start = random.nextInt(length + 1);
+                int end = start + random.nextInt(length - start + 1);
+                editor.selectText(start, end);
+                deltaEditor.selectText(start, end);
+                String text = action == 2 ? "" : "x" + step;
+                editor.write(text);
+                deltaEditor.write(text);
+                history.save();
+                deltaHistory.save();
+            }
+            assertEquals(editor.getContent(), deltaEditor.getContent());
+            assertEquals(editor.getCursorPosition(), deltaEditor.getCursorPosition());
+        }
+    }
+
+    @Test
+    void testDeltaHistoryMemoryScalesWithEdits() {
+        String document = "lorem ipsum ".repeat(10_000);
+        TextEditor deltaEditor = new TextEditor();
+        EditorHistory deltaHistory = new EditorHistory(deltaEditor, 16);
+        for (TextEditor target : new TextEditor[] {editor, deltaEditor}) {
+            target.write(document);
+        }
+        history.save();
+        deltaHistory.save();
+        for (int i = 0; i < 100; i++) {
+            editor.write("!");
+            deltaEditor.write("!");
+            history.save();
+            deltaHistory.save();
+        }
+
+        assertTrue(history.getHistoryMemoryUsage() > 100L * document.length());
+        assertTrue(deltaHistory.getHistoryMemoryUsage() < 10L * document.length() * 2);
+        assertTrue(deltaHistory.undo());
+        assertEquals(document + "!".repeat(99), deltaEditor.getContent());
+    }
+
+    @Test
+    void testMementosShareDocumentStructure() {
+        editor.write("chunk ".repeat(200_000));
+        EditorMemento before = editor.save();
+        editor.setCursorPosition(600_000);
+        editor.write("edit");
+        EditorMemento after = editor.save();
+
+        assertSame(after.getDocument(), editor.save().getDocument());
+        editor.restore(before);
+        assertSame(before.getDocument(), editor.save().getDocument());
+        assertEquals(1_200_000, editor.getContent().length());
+        editor.restore(after);
+        assertEquals("edit", editor.getContent().substring(600_000, 600_004));
+        assertTrue(after.getDocument().depth() < 20);
+    }
+
+    @Test
+    void testTieredStoreSpillsAndReloadsDeepHistory(@TempDir Path directory) throws IOException {
+        try (TieredMementoStore store = new TieredMementoStore(directory.resolve("history.spill"), 4, 301)) {
+            TextEditor deepEditor = new TextEditor();
+            EditorHistory deepHistory = new EditorHistory(deepEditor, 1, store);
+            List<String> states = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                states.add(deepEditor.getContent());
+                deepEditor.write("line " + i + "\n");
+                deepEditor.selectText(0, 4);
+                deepHistory.save();
+            }
+            assertEquals(297, store.getSpilledCount());
+
+            int undone = 0;
+            while (deepHistory.undo()) {
+                undone++;
+                assertEquals(states.get(400 - undone), deepEditor.getContent());
+                assertEquals("line", deepEditor.getSelectedText());
+            }
+            assertEquals(300, undone);
+            assertEquals(0, store.getSpilledCount());
+            assertTrue(deepHistory.redo());
+            assertEquals(states.get(101), deepEditor.getContent());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new TieredMementoStore(0));
+    }
+
+    @Test
+    void testSpillFileStaysBoundedAndCloses(@TempDir Path directory) throws IOException {
+        TieredMementoStore store = new TieredMementoStore(directory.resolve("bounded.spill"), 2, 50);
+        store.setCompression(MementoCodec.IDENTITY, 0);
+        TextEditor deepEditor = new TextEditor();
+        EditorHistory deepHistory = new EditorHistory(deepEditor, 4, store);
+        deepEditor.write("x".repeat(4_000));
+        for (int i = 0; i < 2_000; i++) {
+            deepEditor.write("!");
+            deepHistory.save();
+        }
+        // About 5 KB per record: 48 live records, not the 2,000 ever spilled
+        assertTrue(store.getSpillFileSize() < 1_000_000, "Spill file: " + store.getSpillFileSize());
+
+        int undone = 0;
+        while (deepHistory.undo()) {
+            undone++;
+            assertEquals(6_000 - undone, deepEditor.getContent().length());
+        }
+        assertEquals(49, undone);
+
+        deepHistory.close();
+        assertThrows(IOException.class, store::getSpillFileSize);
+    }
+
+    @Test
+    void testOldestHotMementoNeverPinsItsBase() {
+        TieredMementoStore store = new TieredMementoStore(2, 3);
+        EditorMemento base = new EditorMemento("base", 4, "");
+        store.push(base);
+        for (int i = 0; i < 3; i++) {
+            EditorMemento full = new EditorMemento("base" + "!".repeat(i + 1), 5 + i, "");
+            store.push(EditorMemento.delta(store.peek(), full, 8));
+        }
+        assertFalse(store.peek().isKeyframe());
+        store.pop();
+        // Its base has left the heap, so the oldest hot state was rebuilt as a keyframe
+        assertTrue(store.peek().isKeyframe());
+        assertEquals("base!!", store.peek().getContent());
+    }
+
+    @Test
+    void testEncodedTierCompressesLargeMementosOnly() {
+        for (MementoCodec codec : new MementoCodec[] {MementoCodec.DEFLATE_FAST, MementoCodec.DEFLATE}) {
+            TieredMementoStore store = new TieredMementoStore(2, 50);
+            store.setCompression(codec, 1024);
+            TextEditor compressedEditor = new TextEditor();
+            EditorHistory compressedHistory = new EditorHistory(compressedEditor, 1, store);
+            for (int i = 0; i < 20; i++) {
+                compressedEditor.write("The quick brown fox jumps over the lazy dog. ".repeat(10));
+                compressedHistory.save();
+            }
+            assertEquals(19, store.getSpilledCount());
+            assertTrue(store.getCompressionRatio() > 5, codec.getName());
+
+            for (int i = 20; i > 0; i--) {
+                assertTrue(compressedHistory.undo());
+                assertEquals(450 * (i - 1), compressedEditor.getContent().length());
+            }
+            assertEquals(19, store.getRestoreCount());
+            assertTrue(store.getAverageRestoreNanos() > 0);
+        }
+
+        TieredMementoStore smallOnly = new TieredMementoStore(1, 10);
+        smallOnly.setCompression(MementoCodec.DEFLATE, 1024);
+        EditorHistory smallHistory = new EditorHistory(editor, 1, smallOnly);
+        for (int i = 0; i < 5; i++) {
+            editor.write("ab");
+            smallHistory.save();
+        }
+        assertEquals(1.0, smallOnly.getCompressionRatio());
+    }
+
+    @Test
+    void testCodecsOnRealisticHistory() {
+        String[] words = ("the memento pattern captures editor state so undo can restore it later while "
+                + "history grows with every save and older states move to a compressed tier on the heap").split(" ");
+        System.out.println("codec         ratio   save ms   restore us   final chars");
+        double[] ratios = new double[3];
+        MementoCodec[] codecs = {MementoCodec.IDENTITY, MementoCodec.DEFLATE_FAST, MementoCodec.DEFLATE};
+        for (int c = 0; c < codecs.length; c++) {
+            // The same seeded editing session for every codec: sentences typed and removed across the document
+            Random random = new Random(22);
+            TieredMementoStore store = new TieredMementoStore(4, 201);
+            store.setCompression(codecs[c], 0);
+            TextEditor session = new TextEditor();
+            EditorHistory sessionHistory = new EditorHistory(session, 1, store);
+            long saveStart = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                int length = session.getContent().length();
+                if (length > 2_000 && random.nextInt(4) == 0) {
+                    int start = random.nextInt(length - 200);
+                    session.selectText(start, start + random.nextInt(200));
+                    session.delete();
+                } else {
+                    session.setCursorPosition(random.nextInt(length + 1));
+                    StringBuilder sentence = new StringBuilder();
+                    for (int w = 0; w < 40; w++) {
+                        sentence.append(words[random.nextInt(words.length)]).append(w % 12 == 11 ? ". " : " ");
+                    }
+                    session.write(sentence.toString());
+                }
+                sessionHistory.save();
+            }
+            long saveNanos = System.nanoTime() - saveStart;
+            String finalContent = session.getContent();
+            while (sessionHistory.undo()) {
+                // Walk back through every encoded state
+            }
+            assertEquals("", session.getContent());
+            assertEquals(197, store.getRestoreCount());
+            assertFalse(finalContent.isEmpty());
+            ratios[c] = store.getCompressionRatio();
+            System.out.printf("%-12s %6.2f %9.1f %12.1f %13d%n", codecs[c].getName(), ratios[c],
+                    saveNanos / 1e6, store.getAverageRestoreNanos() / 1e3, finalContent.length());
+        }
+        assertEquals(1.0, ratios[0]);
+        assertTrue(ratios[1] > 2, "deflate-fast ratio " + ratios[1]);
+        assertTrue(ratios[2] >= ratios[1] * 0.95, "deflate ratio " + ratios[2]);
+    }
+
+    @Test
+    void testSnapshotsStayConsistentWhileWriting() throws InterruptedException {
+        // Every write appends a distinct token, so content, cursor and selection from different states disagree
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                String token = String.format("%05d;", i);
+                editor.write(token);
+                if (i % 100 == 0) {
+                    int end = 6 * (i + 1);
+                    editor.selectText(end - 6, end);
+                    editor.write(token);
+                    editor.setCursorPosition(end);
+                }
+            }
+        });
+        writer.start();
+        long lastVersion = -1;
+        int snapshots = 0;
+        while (writer.isAlive() || snapshots == 0) {
+            long version = editor.getVersion();
+            EditorMemento snapshot = editor.save();
+            String content = snapshot.getContent();
+            int tokens = content.length() / 6;
+            assertEquals(0, content.length() % 6);
+            assertEquals(content.length(), snapshot.getCursorPosition());
+            if (tokens > 0) {
+                String last = String.format("%05d;", tokens - 1);
+                assertEquals(last, content.substring(content.length() - 6));
+                String selected = snapshot.getSelectedText();
+                assertTrue(selected.isEmpty() || selected.equals(last), selected + " / " + last);
+            }
+            assertTrue(version >= lastVersion);
+            lastVersion = version;
+            history.save();
+            snapshots++;
+        }
+        writer.join();
+        assertEquals(120_000, editor.getContent().length());
+        assertTrue(editor.getVersion() > 20_000);
+    }
+}
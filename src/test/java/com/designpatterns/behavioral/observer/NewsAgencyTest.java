@@ -2,6 +2,19 @@ package com.designpatterns.behavioral.observer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -113,4 +126,231 @@ public class NewsAgencyTest {
         // Detached subscriber should not receive new updates
         assertEquals(firstNews, channel.getLastNews());
     }
+
+    @Test
+    void testLargeSubscriberRegistration() {
+        // Registration is a hash-set insert, so 100k subscribers stay cheap
+        for (int i = 0; i < 100_000; i++) {
+            newsAgency.attach(new CountingSubscriber());
+        }
+        assertEquals(100_000, newsAgency.getSubscriberCount());
+
+        CountingSubscriber probe = new CountingSubscriber();
+        newsAgency.attach(probe);
+        newsAgency.attach(probe);
+        assertEquals(100_001, newsAgency.getSubscriberCount());
+
+        newsAgency.setNews("Scale test");
+        assertEquals(1, probe.received);
+    }
+
+    @Test
+    void testDetachDuringNotification() {
+        // A subscriber that unsubscribes from inside its callback
+        NewsSubscriber oneShot = new NewsSubscriber() {
+            @Override
+            public void update(String news) {
+                newsAgency.detach(this);
+                newsAgency.attach(website);
+            }
+
+            @Override
+            public String getSubscriberType() {
+                return "ONE_SHOT";
+            }
+        };
+        newsAgency.attach(oneShot);
+        newsAgency.attach(channel);
+
+        assertDoesNotThrow(() -> newsAgency.setNews("First update"));
+        assertEquals("First update", channel.getLastNews());
+        // Changes made during a notification apply from the next one
+        assertNull(website.getLastNews());
+        assertEquals(2, newsAgency.getSubscriberCount());
+    }
+
+    @Test
+    void testParallelFanOut() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NewsAgency parallelAgency = new NewsAgency(null, pool);
+            parallelAgency.setParallelismThreshold(100);
+            parallelAgency.setChunkSize(250);
+            AtomicInteger delivered = new AtomicInteger();
+            for (int i = 0; i < 10_000; i++) {
+                parallelAgency.attach(new NewsSubscriber() {
+                    @Override
+                    public void update(String news) {
+                        delivered.incrementAndGet();
+                    }
+
+                    @Override
+                    public String getSubscriberType() {
+                        return "COUNTING";
+                    }
+                });
+            }
+
+            CompletableFuture<Void> first = parallelAgency.setNewsAsync("Headline 1");
+            CompletableFuture<Void> second = parallelAgency.setNewsAsync("Headline 2");
+            CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+            assertEquals(20_000, delivered.get());
+            assertEquals("Headline 2", parallelAgency.getNews());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAsyncPublishBelowThresholdRunsInline() {
+        newsAgency.attach(channel);
+        CompletableFuture<Void> delivery = newsAgency.setNewsAsync("Small audience");
+        assertTrue(delivery.isDone());
+        assertEquals("Small audience", channel.getLastNews());
+
+        // Subscriber failures surface through the future
+        newsAgency.attach(new CountingSubscriber() {
+            @Override
+            public void update(String news) {
+                throw new IllegalStateException("Subscriber offline");
+            }
+        });
+        ExecutionException failure = assertThrows(ExecutionException.class,
+                () -> newsAgency.setNewsAsync("Breaking").get());
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+    }
+
+    private static class CountingSubscriber implements NewsSubscriber {
+        private int received;
+
+        @Override
+        public void update(String news) {
+            received++;
+        }
+
+        @Override
+        public String getSubscriberType() {
+            return "COUNTING";
+        }
+    }
+
+    @Test
+    void testTopicPublishing() {
+        MobileApp sportsApp = new MobileApp("Sports App");
+        newsAgency.subscribe("sports", sportsApp);
+        newsAgency.subscribe("sports", channel);
+        newsAgency.subscribe("politics", website);
+        newsAgency.attach(mobileApp);
+        assertEquals(2, newsAgency.getTopicSubscriberCount("sports"));
+
+        newsAgency.publish("sports", "Final score: 2-1");
+
+        // Only subscribers of the topic receive the story
+        assertEquals("Final score: 2-1", sportsApp.getLastNews());
+        assertEquals("Final score: 2-1", channel.getLastNews());
+        assertNull(website.getLastNews());
+        assertNull(mobileApp.getLastNews());
+    }
+
+    @Test
+    void testTopicPublishingBySubscriberType() {
+        MobileApp sportsApp = new MobileApp("Sports App");
+        newsAgency.subscribe("sports", sportsApp);
+        newsAgency.subscribe("sports", channel);
+
+        newsAgency.publish("sports", "MOBILE_APP", "Push alert: match starting");
+        assertEquals("Push alert: match starting", sportsApp.getLastNews());
+        assertNull(channel.getLastNews());
+
+        // Unknown topics and types route to nobody
+        assertDoesNotThrow(() -> newsAgency.publish("weather", "Sunny"));
+        assertDoesNotThrow(() -> newsAgency.publish("sports", "WEBSITE", "Nobody listening"));
+    }
+
+    @Test
+    void testDetachRemovesTopicSubscriptions() {
+        newsAgency.subscribe("sports", channel);
+        newsAgency.subscribe("politics", channel);
+        newsAgency.attach(channel);
+
+        newsAgency.detach(channel);
+        assertEquals(0, newsAgency.getSubscriberCount());
+        assertEquals(0, newsAgency.getTopicSubscriberCount("sports"));
+        assertEquals(0, newsAgency.getTopicSubscriberCount("politics"));
+
+        newsAgency.subscribe("sports", website);
+        newsAgency.unsubscribe("sports", website);
+        newsAgency.publish("sports", "No one left");
+        assertNull(website.getLastNews());
+    }
+
+    @Test
+    void testDurableSubscriberResumesAfterReconnect(@TempDir Path logDirectory) throws IOException {
+        try (NewsLog log = new NewsLog(logDirectory, 4096, 4)) {
+            NewsAgency durableAgency = new NewsAgency(log);
+            List<String> received = new ArrayList<>();
+            NewsSubscriber app = recordingSubscriber(received);
+
+            durableAgency.attach("bbc-app", app);
+            durableAgency.setNews("First update");
+            durableAgency.detach(app);
+
+            durableAgency.setNews("Missed update 1");
+            durableAgency.setNews("Missed update 2");
+
+            // Reconnecting replays exactly the stories published while away
+            durableAgency.attach("bbc-app", app);
+            durableAgency.setNews("Live update");
+            assertEquals(List.of("First update", "Missed update 1", "Missed update 2", "Live update"), received);
+        }
+    }
+
+    @Test
+    void testNewsLogSurvivesRestart(@TempDir Path logDirectory) throws IOException {
+        try (NewsLog log = new NewsLog(logDirectory, 4096, 4)) {
+            NewsAgency durableAgency = new NewsAgency(log);
+            durableAgency.attach("website", website);
+            durableAgency.detach(website);
+            durableAgency.setNews("Published before restart");
+        }
+
+        Files.writeString(logDirectory.resolve("debug.log"), "not a segment");
+        try (NewsLog reopened = new NewsLog(logDirectory, 4096, 4)) {
+            NewsAgency restartedAgency = new NewsAgency(reopened);
+            restartedAgency.attach("website", website);
+            assertEquals("Published before restart", website.getLastNews());
+        }
+    }
+
+    @Test
+    void testNewsLogRetentionRollsAndDeletesSegments(@TempDir Path logDirectory) throws IOException {
+        try (NewsLog log = new NewsLog(logDirectory, 64, 2)) {
+            for (int i = 0; i < 20; i++) {
+                log.append("Story number " + i);
+            }
+            assertEquals(2, log.getSegmentCount());
+            assertTrue(log.getStartOffset() > 0);
+
+            // Replaying from a deleted offset starts at the oldest retained story
+            List<String> retained = new ArrayList<>();
+            long end = log.replay(0, (offset, story) -> retained.add(story));
+            assertEquals(log.getEndOffset(), end);
+            assertEquals("Story number 19", retained.get(retained.size() - 1));
+            assertTrue(retained.size() < 20);
+        }
+    }
+
+    private static NewsSubscriber recordingSubscriber(List<String> received) {
+        return new NewsSubscriber() {
+            @Override
+            public void update(String news) {
+                received.add(news);
+            }
+
+            @Override
+            public String getSubscriberType() {
+                return "RECORDING";
+            }
+        };
+    }
 }
\ No newline at end of file
@@ -2,6 +2,18 @@ package com.designpatterns.behavioral.observer;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.Attribute;
+import javax.management.ObjectName;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class WeatherStationTest {
@@ -93,4 +105,289 @@ public class WeatherStationTest {
         assertEquals(1, temperatures.size());
         assertEquals(23.0, temperatures.get(0), 0.01);
     }
+
+    @Test
+    void testAsyncObserverDoesNotBlockPublisher() {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        AsyncWeatherObserver async = weatherStation.registerAsyncObserver(
+                statisticsDisplay, pending::add, 16, AsyncWeatherObserver.OverflowPolicy.DROP_OLDEST);
+        weatherStation.registerObserver(currentDisplay);
+
+        weatherStation.setMeasurements(20.0, 60.0, 1010.0);
+        weatherStation.setMeasurements(21.0, 61.0, 1011.0);
+
+        // The synchronous observer is up to date while the async one is still queued
+        assertEquals(21.0, currentDisplay.getTemperature(), 0.01);
+        assertEquals(2, async.getQueueDepth());
+        assertTrue(statisticsDisplay.getTemperatures().isEmpty());
+
+        // A single drain task delivers the whole backlog in order
+        assertEquals(1, pending.size());
+        pending.poll().run();
+        assertEquals(0, async.getQueueDepth());
+        assertEquals(2, statisticsDisplay.getTemperatures().size());
+        assertEquals(20.0, statisticsDisplay.getTemperatures().get(0), 0.01);
+    }
+
+    @Test
+    void testAsyncOverflowPolicies() {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        StatisticsDisplay dropOldestDisplay = new StatisticsDisplay();
+        AsyncWeatherObserver dropOldest = weatherStation.registerAsyncObserver(
+                dropOldestDisplay, pending::add, 2, AsyncWeatherObserver.OverflowPolicy.DROP_OLDEST);
+        AsyncWeatherObserver coalesce = weatherStation.registerAsyncObserver(
+                statisticsDisplay, pending::add, 2, AsyncWeatherObserver.OverflowPolicy.COALESCE_LATEST);
+
+        weatherStation.setMeasurements(20.0, 60.0, 1010.0);
+        weatherStation.setMeasurements(21.0, 61.0, 1011.0);
+        weatherStation.setMeasurements(22.0, 62.0, 1012.0);
+        assertEquals(1, dropOldest.getDroppedCount());
+        assertEquals(1, coalesce.getDroppedCount());
+
+        pending.forEach(Runnable::run);
+
+        // Drop-oldest keeps the two newest readings
+        assertEquals(21.0, dropOldestDisplay.getTemperatures().get(0), 0.01);
+        assertEquals(22.0, dropOldestDisplay.getTemperatures().get(1), 0.01);
+
+        // Coalesce-latest keeps the first reading and replaces the tail with the newest
+        assertEquals(20.0, statisticsDisplay.getTemperatures().get(0), 0.01);
+        assertEquals(22.0, statisticsDisplay.getTemperatures().get(1), 0.01);
+    }
+
+    @Test
+    void testAsyncBlockPolicyWaitsForSlowObserver() throws InterruptedException {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        AsyncWeatherObserver async = weatherStation.registerAsyncObserver(
+                statisticsDisplay, pending::add, 1, AsyncWeatherObserver.OverflowPolicy.BLOCK);
+        weatherStation.setMeasurements(20.0, 60.0, 1010.0);
+
+        Thread publisher = new Thread(() -> weatherStation.setMeasurements(21.0, 61.0, 1011.0));
+        publisher.start();
+        publisher.join(100);
+        assertTrue(publisher.isAlive(), "Publisher should wait while the queue is full");
+
+        pending.poll().run();
+        publisher.join(5000);
+        assertFalse(publisher.isAlive());
+        pending.forEach(Runnable::run);
+
+        // Nothing is lost under back-pressure
+        assertEquals(0, async.getDroppedCount());
+        assertEquals(2, statisticsDisplay.getTemperatures().size());
+    }
+
+    @Test
+    void testStreamingStatistics() {
+        weatherStation.registerObserver(statisticsDisplay);
+        weatherStation.setMeasurements(20.0, 60.0, 1010.0);
+        weatherStation.setMeasurements(22.0, 65.0, 1012.0);
+        weatherStation.setMeasurements(24.0, 70.0, 1014.0);
+
+        RunningStatistics temperature = statisticsDisplay.getTemperatureStatistics();
+        assertEquals(3, temperature.getCount());
+        assertEquals(22.0, temperature.getAverage(), 0.01);
+        assertEquals(20.0, temperature.getMin(), 0.01);
+        assertEquals(24.0, temperature.getMax(), 0.01);
+        assertEquals(8.0 / 3.0, temperature.getVariance(), 1e-9);
+        assertEquals(65.0, statisticsDisplay.getHumidityStatistics().getAverage(), 0.01);
+    }
+
+    @Test
+    void testWindowedStatisticsStayBounded() {
+        StatisticsDisplay windowed = new StatisticsDisplay(2);
+        weatherStation.registerObserver(windowed);
+        weatherStation.setMeasurements(10.0, 60.0, 1010.0);
+        weatherStation.setMeasurements(20.0, 65.0, 1012.0);
+        weatherStation.setMeasurements(30.0, 70.0, 1014.0);
+
+        // Lifetime statistics cover every reading, the window only the latest two
+        assertEquals(20.0, windowed.getTemperatureStatistics().getAverage(), 0.01);
+        assertEquals(10.0, windowed.getTemperatureStatistics().getMin(), 0.01);
+        assertEquals(2, windowed.getTemperatures().size());
+        assertEquals(25.0, windowed.getWindowedTemperatureStatistics().getAverage(), 0.01);
+        assertEquals(20.0, windowed.getWindowedTemperatureStatistics().getMin(), 0.01);
+
+        StatisticsDisplay lifetimeOnly = new StatisticsDisplay(0);
+        lifetimeOnly.update(15.0, 50.0, 1000.0);
+        assertTrue(lifetimeOnly.getTemperatures().isEmpty());
+        assertEquals(15.0, lifetimeOnly.getTemperatureStatistics().getMax(), 0.01);
+    }
+
+    @Test
+    void testPercentilesOverSlidingWindow() {
+        AtomicLong now = new AtomicLong();
+        PercentileDisplay hourly = new PercentileDisplay(Duration.ofHours(1), 60, now::get);
+        weatherStation.registerObserver(hourly);
+
+        for (int i = 1; i <= 100; i++) {
+            now.set(i * 1000L);
+            weatherStation.setMeasurements(i * 0.1, 50.0, 1000.0 + i);
+        }
+
+        assertEquals(5.0, hourly.getPercentile(PercentileDisplay.Metric.TEMPERATURE, 0.50), 0.1);
+        assertEquals(9.5, hourly.getPercentile(PercentileDisplay.Metric.TEMPERATURE, 0.95), 0.1);
+        assertEquals(9.9, hourly.getPercentile(PercentileDisplay.Metric.TEMPERATURE, 0.99), 0.1);
+        assertEquals(1099.0, hourly.getPercentile(PercentileDisplay.Metric.PRESSURE, 0.99), 0.1);
+
+        // Once the window has slid past every reading the sketch is empty again
+        now.set(Duration.ofHours(2).toMillis());
+        assertEquals(0, hourly.getSketch(PercentileDisplay.Metric.TEMPERATURE).getCount());
+    }
+
+    @Test
+    void testLateReadingsNeverEvictNewerPanes() {
+        // One-minute window in four 15-second panes
+        WindowedQuantileSketch window = new WindowedQuantileSketch(60_000, 4, new QuantileSketch(0, 100, 1));
+        assertTrue(window.record(61_000, 50.0));
+        assertTrue(window.record(62_000, 52.0));
+
+        // 1s shares 61s's slot but is a whole window older: dropped, not a reset
+        assertFalse(window.record(1_000, 10.0));
+        // 10s is in a different slot, but its pane has already slid out of the window
+        assertFalse(window.record(10_000, 10.0));
+        // A late reading still inside the window is kept
+        assertTrue(window.record(50_000, 30.0));
+
+        QuantileSketch snapshot = window.snapshot(62_000);
+        assertEquals(3, snapshot.getCount());
+        assertEquals(30.0, snapshot.getMin(), 1.0);
+        assertEquals(52.0, snapshot.getMax(), 1.0);
+    }
+
+    @Test
+    void testTumblingWindowAndSketchMerge() {
+        AtomicLong now = new AtomicLong();
+        PercentileDisplay north = new PercentileDisplay(Duration.ofMinutes(1), 1, now::get);
+        PercentileDisplay south = new PercentileDisplay(Duration.ofMinutes(1), 1, now::get);
+
+        north.update(10.0, 40.0, 1000.0);
+        north.update(12.0, 42.0, 1002.0);
+        south.update(30.0, 80.0, 1020.0);
+        south.update(32.0, 82.0, 1022.0);
+
+        QuantileSketch combined = north.getSketch(PercentileDisplay.Metric.TEMPERATURE);
+        combined.merge(south.getSketch(PercentileDisplay.Metric.TEMPERATURE));
+        assertEquals(4, combined.getCount());
+        assertEquals(12.0, combined.quantile(0.50), 0.1);
+        assertEquals(32.0, combined.quantile(1.0), 0.1);
+
+        // A tumbling window starts empty at the next minute boundary
+        now.set(Duration.ofMinutes(1).toMillis());
+        north.update(20.0, 50.0, 1010.0);
+        assertEquals(1, north.getSketch(PercentileDisplay.Metric.TEMPERATURE).getCount());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> combined.merge(north.getSketch(PercentileDisplay.Metric.PRESSURE)));
+    }
+
+    @Test
+    void testBatchMeasurements() {
+        List<Double> perReading = new ArrayList<>();
+        weatherStation.registerObserver(statisticsDisplay);
+        weatherStation.registerObserver(currentDisplay);
+        weatherStation.registerObserver((temperature, humidity, pressure) -> perReading.add(temperature));
+
+        double[] temperatures = {18.0, 20.0, 22.0, 24.0};
+        double[] humidities = {55.0, 60.0, 65.0, 70.0};
+        double[] pressures = {1008.0, 1010.0, 1012.0, 1014.0};
+        weatherStation.setMeasurements(temperatures, humidities, pressures, 1, 3);
+
+        // Batch-aware observers see the whole slice, plain observers one call per reading
+        assertEquals(3, statisticsDisplay.getTemperatureStatistics().getCount());
+        assertEquals(22.0, statisticsDisplay.getTemperatureStatistics().getAverage(), 0.01);
+        assertEquals(List.of(20.0, 22.0, 24.0), perReading);
+
+        // The latest reading becomes the station's current state
+        assertEquals(24.0, currentDisplay.getTemperature(), 0.01);
+        assertEquals(70.0, weatherStation.getHumidity(), 0.01);
+        assertEquals(1014.0, weatherStation.getPressure(), 0.01);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> weatherStation.setMeasurements(temperatures, new double[1], pressures));
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> weatherStation.setMeasurements(temperatures, humidities, pressures, 2, 3));
+    }
+
+    @Test
+    void testConflatingObserverSeesOnlyLatestReading() {
+        Queue<Runnable> pending = new ArrayDeque<>();
+        ConflatingWeatherObserver conflating = weatherStation.registerConflatingObserver(statisticsDisplay, pending::add);
+
+        weatherStation.setMeasurements(20.0, 60.0, 1010.0);
+        weatherStation.setMeasurements(21.0, 61.0, 1011.0);
+        weatherStation.setMeasurements(22.0, 62.0, 1012.0);
+        assertTrue(conflating.isDirty());
+        assertEquals(2, conflating.getConflatedCount());
+        assertEquals(1, pending.size());
+
+        pending.poll().run();
+        assertFalse(conflating.isDirty());
+        assertEquals(List.of(22.0), statisticsDisplay.getTemperatures());
+
+        // A later reading schedules a new delivery
+        weatherStation.setMeasurements(23.0, 63.0, 1013.0);
+        pending.poll().run();
+        assertEquals(List.of(22.0, 23.0), statisticsDisplay.getTemperatures());
+
+        weatherStation.removeObserver(conflating);
+        assertEquals(0, weatherStation.getObserverCount());
+    }
+
+    @Test
+    void testObserverMetrics() {
+        NotificationMetrics metrics = weatherStation.getMetrics();
+        Queue<Runnable> pending = new ArrayDeque<>();
+        weatherStation.registerObserver(currentDisplay);
+        AsyncWeatherObserver async = weatherStation.registerAsyncObserver(
+                statisticsDisplay, pending::add, 8, AsyncWeatherObserver.OverflowPolicy.DROP_OLDEST);
+        WeatherObserver failing = (temperature, humidity, pressure) -> {
+            throw new IllegalStateException("Display offline");
+        };
+        weatherStation.registerObserver(failing);
+
+        // Nothing is recorded while metrics are disabled
+        assertThrows(IllegalStateException.class, () -> weatherStation.setMeasurements(20.0, 60.0, 1010.0));
+        assertTrue(metrics.snapshot().isEmpty());
+
+        metrics.setEnabled(true);
+        assertThrows(IllegalStateException.class, () -> weatherStation.setMeasurements(21.0, 61.0, 1011.0));
+        assertThrows(IllegalStateException.class, () -> weatherStation.setMeasurements(22.0, 62.0, 1012.0));
+
+        // Queued readings are timed when delivered, not when enqueued
+        assertEquals(4, metrics.getTotalInvocations());
+        assertEquals(2, metrics.getTotalExceptions());
+        assertEquals(3, async.getQueueDepth());
+        while (!pending.isEmpty()) {
+            pending.poll().run();
+        }
+        ObserverMetricsSnapshot asyncMetrics = metrics.snapshot().stream()
+                .filter(snapshot -> snapshot.getObserverName().startsWith("AsyncWeatherObserver"))
+                .findFirst().orElseThrow();
+        assertEquals(3, asyncMetrics.getInvocationCount());
+        assertEquals(0, asyncMetrics.getQueueDepth());
+        assertEquals(7, metrics.getTotalInvocations());
+        assertTrue(asyncMetrics.getP99LatencyNanos() >= asyncMetrics.getP50LatencyNanos());
+
+        // Removing an observer drops its metrics
+        weatherStation.removeObserver(async);
+        assertEquals(2, metrics.snapshot().size());
+    }
+
+    @Test
+    void testMetricsMBeanRegistration() throws Exception {
+        NotificationMetrics metrics = weatherStation.getMetrics();
+        ObjectName name = metrics.registerMBean("weather-test");
+        try {
+            weatherStation.registerObserver(currentDisplay);
+            ManagementFactory.getPlatformMBeanServer().setAttribute(name,
+                    new Attribute("Enabled", true));
+            weatherStation.setMeasurements(25.0, 65.0, 1013.0);
+
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "TotalInvocations"));
+            assertNotNull(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "ObserverMetrics"));
+        } finally {
+            metrics.unregisterMBean(name);
+        }
+    }
 }
\ No newline at end of file
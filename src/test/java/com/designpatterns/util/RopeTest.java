@@ -0,0 +1,69 @@
+package com.designpatterns.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RopeTest {
+
+    @Test
+    void testRopeMatchesStringBuilder() {
+        Random random = new Random(42);
+        Rope rope = Rope.EMPTY;
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            if (expected.length() > 0 && random.nextInt(3) == 0) {
+                int start = random.nextInt(expected.length());
+                int end = Math.min(expected.length(), start + random.nextInt(8));
+                rope = rope.delete(start, end);
+                expected.delete(start, end);
+            } else {
+                int position = random.nextInt(expected.length() + 1);
+                String text = "chunk" + i;
+                rope = rope.insert(position, text);
+                expected.insert(position, text);
+            }
+        }
+
+        assertEquals(expected.toString(), rope.toString());
+        assertEquals(expected.length(), rope.length());
+        assertEquals(expected.substring(100, 900), rope.substring(100, 900));
+        assertEquals(expected.substring(200, 300), rope.subRope(200, 300).toString());
+        assertEquals(expected.charAt(777), rope.charAt(777));
+        assertTrue(rope.depth() <= 48);
+    }
+
+    @Test
+    void testRopeCommonPrefixAndSuffixMatchStrings() {
+        Random random = new Random(7);
+        Rope rope = Rope.of("x".repeat(3_000));
+        for (int i = 0; i < 500; i++) {
+            Rope edited;
+            if (random.nextBoolean()) {
+                int position = random.nextInt(rope.length() + 1);
+                edited = rope.insert(position, random.nextBoolean() ? "x" : "y" + i);
+            } else {
+                int start = random.nextInt(rope.length());
+                edited = rope.delete(start, Math.min(rope.length(), start + 1 + random.nextInt(600)));
+            }
+            String before = rope.toString();
+            String after = edited.toString();
+            int limit = Math.min(before.length(), after.length());
+            int prefix = 0;
+            while (prefix < limit && before.charAt(prefix) == after.charAt(prefix)) {
+                prefix++;
+            }
+            int suffix = 0;
+            while (suffix < limit - prefix
+                    && before.charAt(before.length() - 1 - suffix) == after.charAt(after.length() - 1 - suffix)) {
+                suffix++;
+            }
+            assertEquals(prefix, rope.commonPrefixLength(edited));
+            assertEquals(suffix, rope.commonSuffixLength(edited, limit - prefix));
+            assertEquals(rope.length(), rope.commonPrefixLength(rope));
+            rope = edited.length() > 0 ? edited : Rope.of("seed");
+        }
+    }
+}